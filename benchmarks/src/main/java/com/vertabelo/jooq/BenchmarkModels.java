@@ -0,0 +1,67 @@
+package com.vertabelo.jooq;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Properties;
+
+import org.jooq.SQLDialect;
+import org.jooq.meta.jaxb.SchemaMappingType;
+
+/**
+ * Model files and databases shared by the benchmarks.
+ *
+ * Models are written by {@link SyntheticModelGenerator} with its default
+ * settings, the given number of tables and a tenth as many views, spread over
+ * three schemas.
+ */
+final class BenchmarkModels {
+
+	private BenchmarkModels() {
+	}
+
+	/**
+	 * Writes a model of the given XML version, 2.2 or 2.3, to a temporary file
+	 * deleted on exit.
+	 */
+	static Path write(String version, int tables) throws IOException {
+		Path file = Files.createTempFile("vertabelo-" + version + "-" + tables + "-", ".xml");
+		file.toFile().deleteOnExit();
+
+		new SyntheticModelGenerator()
+			.withVersion(version)
+			.withTables(tables)
+			.withViews(tables / 10)
+			.withSchemas(3)
+			.write(file);
+
+		return file;
+	}
+
+	/**
+	 * Creates a database reading the given model file. Databases of the same
+	 * file share the parsed model.
+	 */
+	static AbstractVertabeloDatabase database(String version, Path file) {
+		AbstractVertabeloDatabase database = "2.2".equals(version)
+				? new com.vertabelo.jooq.v2_2.VertabeloDatabase()
+				: new com.vertabelo.jooq.v2_3.VertabeloDatabase();
+
+		Properties properties = new Properties();
+		properties.setProperty("dialect", SQLDialect.POSTGRES.name());
+		properties.setProperty("xml-file", file.toString());
+
+		database.setProperties(properties);
+		// all schemata, like the code generator without configured schemata
+		database.setConfiguredSchemata(Collections.singletonList(new SchemaMappingType().withInputSchema("")));
+		database.setIncludes(new String[] { ".*" });
+		database.setExcludes(new String[0]);
+		database.setIncludeTables(true);
+		database.setIncludePrimaryKeys(true);
+		database.setIncludeUniqueKeys(true);
+		database.setIncludeForeignKeys(true);
+		database.setIncludeCheckConstraints(true);
+		return database;
+	}
+}
@@ -0,0 +1,87 @@
+package com.vertabelo.jooq;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vertabelo.jooq.model.ModelDatabase;
+
+/**
+ * Parsing a model in memory into a {@link ModelDatabase}, with JAXB and the
+ * converter or with the StAX reader.
+ *
+ * The cold benchmarks parse once per fresh JVM, like a short lived code
+ * generator run, including the JAXB context creation and class loading. The
+ * warm benchmarks measure the steady state.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BinderBenchmark {
+
+	@Param({ "2.2", "2.3" })
+	public String version;
+
+	@Param({ "10", "1000", "10000" })
+	public int tables;
+
+	private AbstractVertabeloDatabase database;
+	private VertabeloModelLoader loader;
+
+	@Setup
+	public void setup() throws Exception {
+		Path file = BenchmarkModels.write(version, tables);
+
+		database = BenchmarkModels.database(version, file);
+		loader = new VertabeloModelLoader(new Properties());
+		loader.setVertabeloXML(Files.readAllBytes(file));
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Fork(10)
+	@Warmup(iterations = 0)
+	@Measurement(iterations = 1)
+	public ModelDatabase jaxbCold() {
+		return database.readModel(loader);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Fork(10)
+	@Warmup(iterations = 0)
+	@Measurement(iterations = 1)
+	public ModelDatabase staxCold() {
+		return database.createStAXModelReader(version).read(loader.getVertabeloXMLSource());
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@Fork(1)
+	@Warmup(iterations = 3, time = 2)
+	@Measurement(iterations = 5, time = 2)
+	public ModelDatabase jaxbWarm() {
+		return database.readModel(loader);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@Fork(1)
+	@Warmup(iterations = 3, time = 2)
+	@Measurement(iterations = 5, time = 2)
+	public ModelDatabase staxWarm() {
+		return database.createStAXModelReader(version).read(loader.getVertabeloXMLSource());
+	}
+}
@@ -0,0 +1,79 @@
+package com.vertabelo.jooq;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jooq.meta.SchemaDefinition;
+import org.jooq.meta.TableDefinition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Building schema, table and column definitions of a model that is already
+ * parsed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DefinitionBenchmark {
+
+	@Param({ "2.2", "2.3" })
+	public String version;
+
+	@Param({ "10", "1000", "10000" })
+	public int tables;
+
+	private AbstractVertabeloDatabase database;
+	private List<VertabeloTableDefinition> definitions;
+
+	@Setup
+	public void setup() throws Exception {
+		database = BenchmarkModels.database(version, BenchmarkModels.write(version, tables));
+
+		definitions = new ArrayList<VertabeloTableDefinition>();
+		for (TableDefinition table : database.getTables()) {
+			definitions.add((VertabeloTableDefinition) table);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		database.close();
+	}
+
+	@Benchmark
+	public List<SchemaDefinition> getSchemata0() throws Exception {
+		return database.getSchemata0();
+	}
+
+	@Benchmark
+	public List<TableDefinition> getTables0() throws Exception {
+		return database.getTables0();
+	}
+
+	/**
+	 * Column definitions of all tables, bypassing the lazy column list of each
+	 * table definition.
+	 */
+	@Benchmark
+	public void getElements0(Blackhole blackhole) throws Exception {
+		for (VertabeloTableDefinition definition : definitions) {
+			blackhole.consume(definition.getElements0());
+		}
+	}
+}
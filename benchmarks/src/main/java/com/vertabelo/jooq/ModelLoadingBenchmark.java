@@ -0,0 +1,79 @@
+package com.vertabelo.jooq;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.stream.StreamSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading a model file: the raw XML, the version detection and the JAXB
+ * unmarshalling.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ModelLoadingBenchmark {
+
+	@Param({ "2.2", "2.3" })
+	public String version;
+
+	@Param({ "10", "1000", "10000" })
+	public int tables;
+
+	private Properties properties;
+	private byte[] xml;
+	private Class<?> modelClass;
+
+	@Setup
+	public void setup() throws Exception {
+		Path file = BenchmarkModels.write(version, tables);
+
+		properties = new Properties();
+		properties.setProperty("xml-file", file.toString());
+
+		xml = Files.readAllBytes(file);
+		modelClass = "2.2".equals(version)
+				? com.vertabelo.jooq.jaxb.v2_2.DatabaseModel.class
+				: com.vertabelo.jooq.jaxb.v2_3.DatabaseModel.class;
+	}
+
+	@Benchmark
+	public VertabeloModelLoader readXML() {
+		VertabeloModelLoader loader = new VertabeloModelLoader(properties);
+		loader.readXML();
+		return loader;
+	}
+
+	/**
+	 * Version detection of a model already in memory.
+	 */
+	@Benchmark
+	public String parseVersion() {
+		VertabeloModelLoader loader = new VertabeloModelLoader(properties);
+		loader.setVertabeloXML(xml);
+		return loader.getVertabeloXMLVersion();
+	}
+
+	@Benchmark
+	public Object unmarshal() {
+		return VertabeloJAXBContexts.unmarshal(version, new StreamSource(new ByteArrayInputStream(xml)), modelClass);
+	}
+}
@@ -0,0 +1,106 @@
+package com.vertabelo.jooq;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.jooq.meta.TableDefinition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Loading the tables of a fresh database and reading the columns of all of
+ * them, the way the generator does, with and without
+ * <code>parallel-columns</code>. The parallel variant runs on pools of 1 to 8
+ * threads, compare it to the serial one to see how it scales.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ParallelColumnsBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Model {
+
+		@Param({ "2.3" })
+		public String version;
+
+		@Param({ "1000", "10000" })
+		public int tables;
+
+		Path file;
+
+		@Setup(Level.Trial)
+		public void writeModel() throws Exception {
+			file = BenchmarkModels.write(version, tables);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class SerialDatabase {
+
+		AbstractVertabeloDatabase database;
+
+		@Setup(Level.Invocation)
+		public void createDatabase(Model model) {
+			database = BenchmarkModels.database(model.version, model.file);
+			database.generatedModel();
+		}
+
+		@TearDown(Level.Invocation)
+		public void closeDatabase() {
+			database.close();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class ParallelDatabase {
+
+		@Param({ "1", "2", "4", "8" })
+		public int parallelism;
+
+		AbstractVertabeloDatabase database;
+
+		@Setup(Level.Invocation)
+		public void createDatabase(Model model) {
+			database = BenchmarkModels.database(model.version, model.file);
+			database.getProperties().setProperty("parallel-columns", "true");
+			database.getProperties().setProperty("parallelism", Integer.toString(parallelism));
+			database.generatedModel();
+		}
+
+		@TearDown(Level.Invocation)
+		public void closeDatabase() {
+			database.close();
+		}
+	}
+
+	@Benchmark
+	public void serialColumns(SerialDatabase serial, Blackhole blackhole) {
+		readColumns(serial.database, blackhole);
+	}
+
+	@Benchmark
+	public void parallelColumns(ParallelDatabase parallel, Blackhole blackhole) {
+		readColumns(parallel.database, blackhole);
+	}
+
+	private static void readColumns(AbstractVertabeloDatabase database, Blackhole blackhole) {
+		for (TableDefinition table : database.getTables()) {
+			blackhole.consume(table.getColumns());
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package com.vertabelo.jooq;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.jooq.meta.DefaultRelations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading keys and checks into the relations of a fresh database whose tables
+ * are already defined.
+ *
+ * Keys and checks of all tables are collected on first use, which is the
+ * primary keys in the order jOOQ loads relations. The other loaders are
+ * measured on databases that have collected them and loaded primary and unique
+ * keys already.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RelationBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Model {
+
+		@Param({ "2.2", "2.3" })
+		public String version;
+
+		@Param({ "10", "1000", "10000" })
+		public int tables;
+
+		Path file;
+
+		@Setup(Level.Trial)
+		public void writeModel() throws Exception {
+			file = BenchmarkModels.write(version, tables);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class FreshDatabase {
+
+		AbstractVertabeloDatabase database;
+		DefaultRelations relations;
+
+		@Setup(Level.Invocation)
+		public void createDatabase(Model model) throws Exception {
+			database = BenchmarkModels.database(model.version, model.file);
+			database.getTables();
+
+			relations = new DefaultRelations();
+		}
+
+		@TearDown(Level.Invocation)
+		public void closeDatabase() {
+			database.close();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class CollectedDatabase {
+
+		AbstractVertabeloDatabase database;
+		DefaultRelations relations;
+
+		@Setup(Level.Invocation)
+		public void createDatabase(Model model) throws Exception {
+			database = BenchmarkModels.database(model.version, model.file);
+			database.getTables();
+
+			// foreign keys refer to the keys loaded before them
+			relations = new DefaultRelations();
+			database.loadPrimaryKeys(relations);
+			database.loadUniqueKeys(relations);
+		}
+
+		@TearDown(Level.Invocation)
+		public void closeDatabase() {
+			database.close();
+		}
+	}
+
+	@Benchmark
+	public DefaultRelations loadPrimaryKeys(FreshDatabase fresh) throws Exception {
+		fresh.database.loadPrimaryKeys(fresh.relations);
+		return fresh.relations;
+	}
+
+	@Benchmark
+	public DefaultRelations loadUniqueKeys(CollectedDatabase collected) throws Exception {
+		DefaultRelations relations = new DefaultRelations();
+		collected.database.loadUniqueKeys(relations);
+		return relations;
+	}
+
+	@Benchmark
+	public DefaultRelations loadForeignKeys(CollectedDatabase collected) throws Exception {
+		collected.database.loadForeignKeys(collected.relations);
+		return collected.relations;
+	}
+
+	@Benchmark
+	public DefaultRelations loadCheckConstraints(CollectedDatabase collected) throws Exception {
+		collected.database.loadCheckConstraints(collected.relations);
+		return collected.relations;
+	}
+}
@@ -0,0 +1,738 @@
+package com.vertabelo.jooq;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.Source;
+
+import com.vertabelo.jooq.model.ModelCheck;
+import com.vertabelo.jooq.model.ModelColumn;
+import com.vertabelo.jooq.model.ModelDatabase;
+import com.vertabelo.jooq.model.ModelIndexColumn;
+import com.vertabelo.jooq.model.ModelKey;
+import com.vertabelo.jooq.model.ModelProperty;
+import com.vertabelo.jooq.model.ModelReference;
+import com.vertabelo.jooq.model.ModelReferenceColumn;
+import com.vertabelo.jooq.model.ModelSequence;
+import com.vertabelo.jooq.model.ModelTable;
+import com.vertabelo.jooq.model.ModelTableIndex;
+import com.vertabelo.jooq.model.ModelView;
+import com.vertabelo.jooq.model.ModelViewColumn;
+import com.vertabelo.jooq.model.StringPool;
+
+/**
+ * Reads a Vertabelo XML model straight into a {@link ModelDatabase} with a
+ * StAX cursor, without JAXB and without materializing the XML.
+ *
+ * Elements not needed by the model are skipped, the diagram layout sections
+ * without even being parsed unless disabled. Strings are trimmed like by the JAXB binding, <code>IDREF</code>
+ * columns and tables are resolved through maps by id: key and index columns
+ * when their table ends, references when the document ends. An unresolved
+ * <code>IDREF</code> is <code>null</code>, as with JAXB.
+ *
+ * Subclasses read the elements that differ between XML versions. A reader
+ * reads one document and is not thread safe.
+ */
+public abstract class AbstractStAXModelReader {
+
+	private static final String ROOT_ELEMENT_NAME = "DatabaseModel";
+
+	// names, types and properties repeat across elements, ids are unique
+	protected final StringPool strings = new StringPool();
+
+	// IDREFs are resolved by id
+	protected final Map<String, ModelTable> tables = new HashMap<String, ModelTable>();
+	protected final Map<String, ModelColumn> columns = new HashMap<String, ModelColumn>();
+
+	private final List<PendingReference> pendingReferences = new ArrayList<PendingReference>();
+
+	private boolean skipDiagram = true;
+
+	/**
+	 * @param skipDiagram <code>true</code> (the default) to skip the diagram
+	 *            layout sections before they are parsed and to log their size
+	 */
+	public void setSkipDiagram(boolean skipDiagram) {
+		this.skipDiagram = skipDiagram;
+	}
+
+	/**
+	 * @param source model XML, a stream source
+	 */
+	public ModelDatabase read(Source source) {
+		XMLStreamReader reader = null;
+
+		try {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+			reader = factory.createXMLStreamReader(source);
+
+			DiagramSkippingReader skipping = null;
+			if (skipDiagram) {
+				reader = skipping = new DiagramSkippingReader(reader);
+			}
+
+			while (reader.hasNext()) {
+				if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+					if (!ROOT_ELEMENT_NAME.equals(reader.getLocalName())) {
+						throw new RuntimeException("Unexpected root element in Vertabelo XML file: " + reader.getLocalName());
+					}
+
+					ModelDatabase result = readDatabaseModel(reader);
+					if (skipping != null) {
+						skipping.logSummary();
+					}
+					return result;
+				}
+			}
+
+			throw new RuntimeException("Missing " + ROOT_ELEMENT_NAME + " element in Vertabelo XML file.");
+
+		} catch (XMLStreamException e) {
+			throw new RuntimeException("Error while parsing Vertabelo XML file.", e);
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (XMLStreamException ignore) {
+				}
+			}
+		}
+	}
+
+	private ModelDatabase readDatabaseModel(XMLStreamReader reader) throws XMLStreamException {
+		String versionId = reader.getAttributeValue(null, "VersionId");
+
+		List<ModelTable> modelTables = new ArrayList<ModelTable>();
+		List<ModelView> modelViews = new ArrayList<ModelView>();
+		List<ModelSequence> modelSequences = new ArrayList<ModelSequence>();
+
+		while (nextElement(reader)) {
+			switch (reader.getLocalName()) {
+			case "Tables":
+				while (nextElement(reader)) {
+					if ("Table".equals(reader.getLocalName())) {
+						ModelTable table = readTable(reader);
+						tables.put(table.getId(), table);
+						modelTables.add(table);
+					} else {
+						skip(reader);
+					}
+				}
+				break;
+			case "Views":
+				while (nextElement(reader)) {
+					if ("View".equals(reader.getLocalName())) {
+						modelViews.add(readView(reader));
+					} else {
+						skip(reader);
+					}
+				}
+				break;
+			case "References":
+				while (nextElement(reader)) {
+					if ("Reference".equals(reader.getLocalName())) {
+						pendingReferences.add(readReference(reader));
+					} else {
+						skip(reader);
+					}
+				}
+				break;
+			case "Sequences":
+				while (nextElement(reader)) {
+					if ("Sequence".equals(reader.getLocalName())) {
+						modelSequences.add(readSequence(reader));
+					} else {
+						skip(reader);
+					}
+				}
+				break;
+			default:
+				skip(reader);
+			}
+		}
+
+		List<ModelReference> modelReferences = new ArrayList<ModelReference>(pendingReferences.size());
+		for (PendingReference reference : pendingReferences) {
+			modelReferences.add(reference.resolve());
+		}
+
+		return new ModelDatabase(versionId, modelTables, modelViews, modelReferences, modelSequences);
+	}
+
+	/**
+	 * Reads a <code>Table</code> element. Its columns must be added to
+	 * {@link #columns}.
+	 */
+	protected abstract ModelTable readTable(XMLStreamReader reader) throws XMLStreamException;
+
+	protected ModelView readView(XMLStreamReader reader) throws XMLStreamException {
+		String id = id(reader);
+		String name = null;
+		String description = null;
+		List<ModelViewColumn> viewColumns = new ArrayList<ModelViewColumn>();
+		List<ModelProperty> properties = null;
+
+		while (nextElement(reader)) {
+			switch (reader.getLocalName()) {
+			case "Name":
+				name = text(reader);
+				break;
+			case "Description":
+				description = text(reader);
+				break;
+			case "ViewColumns":
+				while (nextElement(reader)) {
+					if ("ViewColumn".equals(reader.getLocalName())) {
+						viewColumns.add(readViewColumn(reader));
+					} else {
+						skip(reader);
+					}
+				}
+				break;
+			case "Properties":
+				properties = readProperties(reader);
+				break;
+			default:
+				skip(reader);
+			}
+		}
+
+		return new ModelView(id, name, description, viewColumns, properties(properties));
+	}
+
+	private ModelViewColumn readViewColumn(XMLStreamReader reader) throws XMLStreamException {
+		String id = id(reader);
+		String name = null;
+		String type = null;
+		String description = null;
+		List<ModelProperty> properties = null;
+
+		while (nextElement(reader)) {
+			switch (reader.getLocalName()) {
+			case "Name":
+				name = text(reader);
+				break;
+			case "Type":
+				type = text(reader);
+				break;
+			case "Description":
+				description = text(reader);
+				break;
+			case "Properties":
+				properties = readProperties(reader);
+				break;
+			default:
+				skip(reader);
+			}
+		}
+
+		return new ModelViewColumn(id, name, type, description, properties(properties));
+	}
+
+	/**
+	 * Reads an <code>AlternateKey</code> element, its columns are resolved
+	 * once its table ends.
+	 */
+	protected PendingKey readAlternateKey(XMLStreamReader reader) throws XMLStreamException {
+		PendingKey result = new PendingKey();
+		result.id = id(reader);
+
+		while (nextElement(reader)) {
+			switch (reader.getLocalName()) {
+			case "Name":
+				result.name = text(reader);
+				break;
+			case "Columns":
+				// a list of columns in v2.3, repeated with one column each in v2.2
+				result.columns.addAll(readColumnIds(reader));
+				break;
+			case "Properties":
+				result.properties = readProperties(reader);
+				break;
+			default:
+				skip(reader);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Reads an <code>Index</code> element, its columns are resolved once its
+	 * table ends.
+	 */
+	protected PendingIndex readIndex(XMLStreamReader reader) throws XMLStreamException {
+		PendingIndex result = new PendingIndex();
+		result.id = id(reader);
+
+		while (nextElement(reader)) {
+			switch (reader.getLocalName()) {
+			case "Name":
+				result.name = text(reader);
+				break;
+			case "Columns":
+				readIndexColumns(reader, result);
+				break;
+			case "Properties":
+				result.properties = readProperties(reader);
+				break;
+			default:
+				skip(reader);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Reads a <code>Columns</code> element of an index, a list of
+	 * <code>Column</code> index columns by default.
+	 */
+	protected void readIndexColumns(XMLStreamReader reader, PendingIndex index) throws XMLStreamException {
+		while (nextElement(reader)) {
+			if ("Column".equals(reader.getLocalName())) {
+				readIndexColumn(reader, index);
+			} else {
+				skip(reader);
+			}
+		}
+	}
+
+	/**
+	 * Reads an index column, i.e. its referenced <code>Column</code> and
+	 * <code>Ascending</code>.
+	 */
+	protected void readIndexColumn(XMLStreamReader reader, PendingIndex index) throws XMLStreamException {
+		String column = null;
+		boolean ascending = false;
+
+		while (nextElement(reader)) {
+			switch (reader.getLocalName()) {
+			case "Column":
+				column = idref(reader);
+				break;
+			case "Ascending":
+				ascending = bool(reader);
+				break;
+			default:
+				skip(reader);
+			}
+		}
+
+		index.columns.add(column);
+		index.ascending.add(ascending);
+	}
+
+	protected ModelCheck readTableCheck(XMLStreamReader reader) throws XMLStreamException {
+		String id = id(reader);
+		String name = null;
+		String checkExpression = null;
+		List<ModelProperty> properties = null;
+
+		while (nextElement(reader)) {
+			switch (reader.getLocalName()) {
+			case "Name":
+				name = text(reader);
+				break;
+			case "CheckExpression":
+				checkExpression = text(reader);
+				break;
+			case "Properties":
+				properties = readProperties(reader);
+				break;
+			default:
+				skip(reader);
+			}
+		}
+
+		return new ModelCheck(id, name, checkExpression, properties(properties));
+	}
+
+	private PendingReference readReference(XMLStreamReader reader) throws XMLStreamException {
+		PendingReference result = new PendingReference();
+		result.id = id(reader);
+
+		while (nextElement(reader)) {
+			switch (reader.getLocalName()) {
+			case "Name":
+				result.name = text(reader);
+				break;
+			case "PKTable":
+				result.pkTable = idref(reader);
+				break;
+			case "FKTable":
+				result.fkTable = idref(reader);
+				break;
+			case "ReferenceColumns":
+				while (nextElement(reader)) {
+					if ("ReferenceColumn".equals(reader.getLocalName())) {
+						readReferenceColumn(reader, result);
+					} else {
+						skip(reader);
+					}
+				}
+				break;
+			case "Properties":
+				result.properties = readProperties(reader);
+				break;
+			default:
+				skip(reader);
+			}
+		}
+
+		return result;
+	}
+
+	private void readReferenceColumn(XMLStreamReader reader, PendingReference reference) throws XMLStreamException {
+		String pkColumn = null;
+		String fkColumn = null;
+
+		while (nextElement(reader)) {
+			switch (reader.getLocalName()) {
+			case "PKColumn":
+				pkColumn = idref(reader);
+				break;
+			case "FKColumn":
+				fkColumn = idref(reader);
+				break;
+			default:
+				skip(reader);
+			}
+		}
+
+		reference.pkColumns.add(pkColumn);
+		reference.fkColumns.add(fkColumn);
+	}
+
+	/**
+	 * Reads a <code>Sequence</code> element. The cache is only used with the
+	 * flag named by {@link #getCacheFlagName()}, see
+	 * {@link #isMinMaxValueFlagged()} for the bounds.
+	 */
+	protected ModelSequence readSequence(XMLStreamReader reader) throws XMLStreamException {
+		String id = id(reader);
+		String name = null;
+		String startWith = null;
+		String incrementBy = null;
+		String minValue = null;
+		boolean hasMinValue = false;
+		String maxValue = null;
+		boolean hasMaxValue = false;
+		boolean cycle = false;
+		String cache = null;
+		boolean useCache = false;
+		List<ModelProperty> properties = null;
+
+		while (nextElement(reader)) {
+			switch (reader.getLocalName()) {
+			case "Name":
+				name = text(reader);
+				break;
+			case "StartWith":
+				startWith = number(reader);
+				break;
+			case "IncrementBy":
+				incrementBy = number(reader);
+				break;
+			case "MinValue":
+				minValue = number(reader);
+				break;
+			case "HasMinValue":
+				hasMinValue = bool(reader);
+				break;
+			case "MaxValue":
+				maxValue = number(reader);
+				break;
+			case "HasMaxValue":
+				hasMaxValue = bool(reader);
+				break;
+			case "Cycle":
+				cycle = bool(reader);
+				break;
+			case "Cache":
+				cache = number(reader);
+				break;
+			case "Properties":
+				properties = readProperties(reader);
+				break;
+			default:
+				if (reader.getLocalName().equals(getCacheFlagName())) {
+					useCache = bool(reader);
+				} else {
+					skip(reader);
+				}
+			}
+		}
+
+		if (isMinMaxValueFlagged()) {
+			minValue = hasMinValue ? minValue : null;
+			maxValue = hasMaxValue ? maxValue : null;
+		}
+
+		return new ModelSequence(id, name, startWith, incrementBy, minValue, maxValue, cycle,
+				useCache ? cache : null, properties(properties));
+	}
+
+	/**
+	 * @return <code>true</code> if the bounds of a sequence are only set with
+	 *         <code>HasMinValue</code> and <code>HasMaxValue</code>, like in
+	 *         v2.2
+	 */
+	protected boolean isMinMaxValueFlagged() {
+		return false;
+	}
+
+	/**
+	 * @return the element that switches the cache of a sequence on,
+	 *         <code>UseCache</code> since v2.3
+	 */
+	protected String getCacheFlagName() {
+		return "UseCache";
+	}
+
+	/**
+	 * Reads the <code>Property</code> children of a
+	 * <code>Properties</code> element.
+	 */
+	protected List<ModelProperty> readProperties(XMLStreamReader reader) throws XMLStreamException {
+		List<ModelProperty> result = new ArrayList<ModelProperty>();
+
+		while (nextElement(reader)) {
+			if (!"Property".equals(reader.getLocalName())) {
+				skip(reader);
+				continue;
+			}
+
+			String name = null;
+			String value = null;
+			while (nextElement(reader)) {
+				switch (reader.getLocalName()) {
+				case "Name":
+					name = text(reader);
+					break;
+				case "Value":
+					value = text(reader);
+					break;
+				default:
+					skip(reader);
+				}
+			}
+			result.add(new ModelProperty(name, value));
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return the properties read or an empty list if the element was missing
+	 */
+	protected static List<ModelProperty> properties(List<ModelProperty> properties) {
+		return properties != null ? properties : new ArrayList<ModelProperty>();
+	}
+
+	/**
+	 * Reads the ids of all <code>Column</code> children of a
+	 * <code>Columns</code> element.
+	 */
+	protected List<String> readColumnIds(XMLStreamReader reader) throws XMLStreamException {
+		List<String> result = new ArrayList<String>();
+		while (nextElement(reader)) {
+			if ("Column".equals(reader.getLocalName())) {
+				result.add(idref(reader));
+			} else {
+				skip(reader);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the columns of the given ids, <code>null</code> for unknown ids
+	 */
+	protected List<ModelColumn> resolveColumns(List<String> ids) {
+		List<ModelColumn> result = new ArrayList<ModelColumn>(ids.size());
+		for (String id : ids) {
+			result.add(id != null ? columns.get(id) : null);
+		}
+		return result;
+	}
+
+	/**
+	 * Moves to the next child element of the current element.
+	 *
+	 * @return <code>false</code> at the end of the current element
+	 */
+	protected static boolean nextElement(XMLStreamReader reader) throws XMLStreamException {
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				return true;
+			}
+			if (event == XMLStreamConstants.END_ELEMENT) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Skips the current element with all its children.
+	 */
+	protected static void skip(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0 && reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * @return the trimmed, pooled text of the current element, text of child
+	 *         elements is ignored
+	 */
+	protected String text(XMLStreamReader reader) throws XMLStreamException {
+		return strings.get(rawText(reader));
+	}
+
+	/**
+	 * @return the pooled number of the current element, <code>null</code> if
+	 *         empty
+	 */
+	protected String number(XMLStreamReader reader) throws XMLStreamException {
+		String value = rawText(reader);
+		return value.isEmpty() ? null : strings.get(value);
+	}
+
+	/**
+	 * @return the trimmed id referenced by the current element
+	 */
+	protected static String idref(XMLStreamReader reader) throws XMLStreamException {
+		return rawText(reader);
+	}
+
+	/**
+	 * @return <code>true</code> for <code>true</code> and <code>1</code>,
+	 *         like <code>xsd:boolean</code>
+	 */
+	protected static boolean bool(XMLStreamReader reader) throws XMLStreamException {
+		String value = rawText(reader);
+		return "true".equals(value) || "1".equals(value);
+	}
+
+	/**
+	 * @return the trimmed <code>Id</code> attribute of the current element
+	 */
+	protected static String id(XMLStreamReader reader) {
+		String id = reader.getAttributeValue(null, "Id");
+		return id != null ? id.trim() : null;
+	}
+
+	private static String rawText(XMLStreamReader reader) throws XMLStreamException {
+		String text = null;
+		StringBuilder builder = null;
+
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+					|| event == XMLStreamConstants.SPACE || event == XMLStreamConstants.ENTITY_REFERENCE) {
+				if (text == null) {
+					text = reader.getText();
+				} else {
+					if (builder == null) {
+						builder = new StringBuilder(text);
+					}
+					builder.append(reader.getText());
+				}
+			} else if (event == XMLStreamConstants.START_ELEMENT) {
+				skip(reader);
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				break;
+			}
+		}
+
+		if (builder != null) {
+			text = builder.toString();
+		}
+		return text != null ? text.trim() : "";
+	}
+
+	/**
+	 * A key read before all columns of its table may be known.
+	 */
+	protected final class PendingKey {
+
+		String id;
+		String name;
+		final List<String> columns = new ArrayList<String>();
+		List<ModelProperty> properties;
+
+		public ModelKey resolve() {
+			return new ModelKey(id, name, resolveColumns(columns), properties(properties));
+		}
+	}
+
+	/**
+	 * An index read before all columns of its table may be known.
+	 */
+	protected final class PendingIndex {
+
+		String id;
+		String name;
+		final List<String> columns = new ArrayList<String>();
+		final List<Boolean> ascending = new ArrayList<Boolean>();
+		List<ModelProperty> properties;
+
+		public ModelTableIndex resolve() {
+			List<ModelColumn> resolved = resolveColumns(columns);
+			List<ModelIndexColumn> indexColumns = new ArrayList<ModelIndexColumn>(resolved.size());
+			for (int i = 0; i < resolved.size(); i++) {
+				indexColumns.add(new ModelIndexColumn(resolved.get(i), ascending.get(i)));
+			}
+			return new ModelTableIndex(id, name, indexColumns, properties(properties));
+		}
+	}
+
+	/**
+	 * A reference read before all tables may be known.
+	 */
+	private final class PendingReference {
+
+		String id;
+		String name;
+		String pkTable;
+		String fkTable;
+		final List<String> pkColumns = new ArrayList<String>();
+		final List<String> fkColumns = new ArrayList<String>();
+		List<ModelProperty> properties;
+
+		ModelReference resolve() {
+			List<ModelReferenceColumn> referenceColumns = new ArrayList<ModelReferenceColumn>(pkColumns.size());
+			for (int i = 0; i < pkColumns.size(); i++) {
+				referenceColumns.add(new ModelReferenceColumn(column(pkColumns.get(i)), column(fkColumns.get(i))));
+			}
+
+			return new ModelReference(id, name, table(pkTable), table(fkTable), referenceColumns,
+					properties(properties));
+		}
+
+		private ModelColumn column(String id) {
+			return id != null ? columns.get(id) : null;
+		}
+
+		private ModelTable table(String id) {
+			return id != null ? tables.get(id) : null;
+		}
+	}
+}
@@ -0,0 +1,1224 @@
+package com.vertabelo.jooq;
+
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+
+import javax.xml.transform.Source;
+
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.SortOrder;
+import org.jooq.impl.DSL;
+import org.jooq.meta.AbstractDatabase;
+import org.jooq.meta.AbstractIndexDefinition;
+import org.jooq.meta.ArrayDefinition;
+import org.jooq.meta.CatalogDefinition;
+import org.jooq.meta.CheckConstraintDefinition;
+import org.jooq.meta.ColumnDefinition;
+import org.jooq.meta.DataTypeDefinition;
+import org.jooq.meta.Database.Filter;
+import org.jooq.meta.DefaultCheckConstraintDefinition;
+import org.jooq.meta.Definition;
+import org.jooq.meta.DefaultDataTypeDefinition;
+import org.jooq.meta.DefaultIndexColumnDefinition;
+import org.jooq.meta.DefaultRelations;
+import org.jooq.meta.DefaultSequenceDefinition;
+import org.jooq.meta.DomainDefinition;
+import org.jooq.meta.EnumDefinition;
+import org.jooq.meta.IndexColumnDefinition;
+import org.jooq.meta.IndexDefinition;
+import org.jooq.meta.PackageDefinition;
+import org.jooq.meta.RoutineDefinition;
+import org.jooq.meta.SchemaDefinition;
+import org.jooq.meta.SequenceDefinition;
+import org.jooq.meta.TableDefinition;
+import org.jooq.meta.UDTDefinition;
+import org.jooq.tools.JooqLogger;
+import org.jooq.tools.StringUtils;
+
+import com.vertabelo.jooq.model.ModelCache;
+import com.vertabelo.jooq.model.ModelCheck;
+import com.vertabelo.jooq.model.ModelColumn;
+import com.vertabelo.jooq.model.ModelDatabase;
+import com.vertabelo.jooq.model.ModelElement;
+import com.vertabelo.jooq.model.ModelFingerprints;
+import com.vertabelo.jooq.model.ModelFootprint;
+import com.vertabelo.jooq.model.ModelIndex;
+import com.vertabelo.jooq.model.ModelIndexColumn;
+import com.vertabelo.jooq.model.ModelKey;
+import com.vertabelo.jooq.model.ModelMerger;
+import com.vertabelo.jooq.model.ModelReference;
+import com.vertabelo.jooq.model.ModelReferenceColumn;
+import com.vertabelo.jooq.model.ModelSequence;
+import com.vertabelo.jooq.model.ModelSnapshot;
+import com.vertabelo.jooq.model.ModelTable;
+import com.vertabelo.jooq.model.ModelTableIndex;
+import com.vertabelo.jooq.model.ModelView;
+
+/**
+ * Base class of the Vertabelo databases. Subclasses only read the model of
+ * their XML version, everything else works on the version independent
+ * {@link ModelDatabase}.
+ */
+public abstract class AbstractVertabeloDatabase extends AbstractDatabase {
+
+	private static final JooqLogger log = JooqLogger.getLogger(AbstractVertabeloDatabase.class);
+
+	protected static final String SNAPSHOT_DIR_PARAM = "snapshot-dir";
+	protected static final String FINGERPRINTS_FILE_PARAM = "fingerprints-file";
+	protected static final String PARALLEL_RELATIONS_PARAM = "parallel-relations";
+	protected static final String PARALLEL_COLUMNS_PARAM = "parallel-columns";
+	protected static final String PARALLELISM_PARAM = "parallelism";
+	protected static final String METRICS_FILE_PARAM = "metrics-file";
+	protected static final String MERGE_DUPLICATES_PARAM = "merge-duplicates";
+	protected static final String XML_BINDER_PARAM = "xml-binder";
+	protected static final String SKIP_DIAGRAM_PARAM = "skip-diagram";
+
+	// values of the XML binder parameter
+	protected static final String XML_BINDER_STAX = "stax";
+	protected static final String XML_BINDER_JAXB = "jaxb";
+
+	// XML additional properties
+	public static final String SCHEMA_ADDITIONAL_PROPERTY_NAME = "schema";
+
+	private ModelDatabase model;
+
+	// the generated part of the model and its definitions, see generatedModel()
+	private ModelDatabase generatedModel;
+	private List<TableDefinition> generatedTables;
+	private List<SequenceDefinition> generatedSequences;
+
+	private DataTypeCache dataTypeCache;
+
+	// generated tables by name, see getTableDefinition()
+	private final Map<SchemaDefinition, Map<String, TableDefinition>> tablesBySchema = new IdentityHashMap<SchemaDefinition, Map<String, TableDefinition>>();
+
+	// relations collected for the load methods, see pendingRelations()
+	private PendingRelations pendingRelations;
+
+	// keys of the definitions with the same fingerprint as in the last run
+	private Set<String> unchangedDefinitions = Collections.emptySet();
+
+	// fingerprints to store when the run succeeds, see close()
+	private Map<String, String> fingerprints;
+	private Path fingerprintsFile;
+
+	// set when loading definitions failed, the fingerprints are not stored then
+	private volatile boolean failed;
+
+	private final LoadMetrics metrics = new LoadMetrics();
+
+	/**
+	 * @param version Vertabelo XML version
+	 * @return <code>true</code> if this database reads the given version
+	 */
+	protected abstract boolean isSupportedVersion(String version);
+
+	/**
+	 * Parses the model read by the loader with JAXB. The returned model must
+	 * not refer to the parsed XML, which is garbage as soon as this method
+	 * returns.
+	 */
+	protected abstract ModelDatabase readModel(VertabeloModelLoader loader);
+
+	/**
+	 * @return <code>true</code> unless the <code>skip-diagram</code> property
+	 *         is <code>false</code>, the diagram layout is then skipped while
+	 *         parsing
+	 */
+	protected boolean isSkipDiagram() {
+		return !"false".equalsIgnoreCase(getProperties().getProperty(SKIP_DIAGRAM_PARAM));
+	}
+
+	/**
+	 * @param version Vertabelo XML version
+	 * @return a new reader parsing the model without JAXB or
+	 *         <code>null</code> if this database has none
+	 */
+	protected AbstractStAXModelReader createStAXModelReader(String version) {
+		return null;
+	}
+
+	/**
+	 * Returns the model, reading it on first use. Parsed models are shared
+	 * through the {@link ModelCache}, so a model read by an earlier run in the
+	 * same class loader is not read again. A model of several files is merged
+	 * from the models of its files, which are shared one by one.
+	 */
+	protected ModelDatabase model() {
+		if (model == null) {
+			metrics.register();
+
+			VertabeloModelLoader loader = new VertabeloModelLoader(getProperties());
+			loader.setMetrics(metrics);
+
+			List<Path> xmlFiles = loader.getXMLFiles();
+			model = xmlFiles.size() > 1 ? loadModels(loader, xmlFiles) : loadModel(loader);
+
+			if (log.isDebugEnabled()) {
+				log.debug("Model footprint: " + ModelFootprint.of(model));
+			}
+
+			String fingerprintsFile = getProperties().getProperty(FINGERPRINTS_FILE_PARAM);
+			if (!StringUtils.isEmpty(fingerprintsFile)) {
+				updateFingerprints(Paths.get(fingerprintsFile));
+			}
+		}
+
+		return model;
+	}
+
+	/**
+	 * Returns the model of a single file or the API, from the cache if
+	 * possible.
+	 */
+	private ModelDatabase loadModel(VertabeloModelLoader loader) {
+		String key = loader.getModelKey();
+		ModelDatabase result = key != null ? ModelCache.get(key) : null;
+
+		if (result != null) {
+			log.info("Using cached model: " + key);
+		} else {
+			loader.readXML();
+			String version = loader.getVertabeloXMLVersion();
+			if (!isSupportedVersion(version)) {
+				throw new IllegalStateException("This class cannot parse data model version " + version
+						+ ", use " + VertabeloDatabase.class.getName() + " to detect the version");
+			}
+
+			String hash = null;
+			if (key == null) {
+				// identified by its content, it is read anyway
+				hash = ModelSnapshot.hash(loader.getVertabeloXMLBytes());
+				key = "sha256:" + hash;
+				result = ModelCache.get(key);
+			}
+
+			if (result == null) {
+				result = readModel(loader, hash);
+				ModelCache.put(key, result);
+			}
+		}
+
+		if (!isSupportedVersion(result.getVersion())) {
+			throw new IllegalStateException("This class cannot parse data model version " + result.getVersion()
+					+ ", use " + VertabeloDatabase.class.getName() + " to detect the version");
+		}
+		return result;
+	}
+
+	/**
+	 * Loads the models of several files concurrently and merges them in file
+	 * order. Each file is cached and snapshotted on its own, so only the
+	 * files that changed are parsed again.
+	 */
+	private ModelDatabase loadModels(final VertabeloModelLoader loader, List<Path> xmlFiles) {
+		long start = System.nanoTime();
+
+		List<String> sources = new ArrayList<String>();
+		List<Callable<ModelDatabase>> tasks = new ArrayList<Callable<ModelDatabase>>();
+		for (final Path xmlFile : xmlFiles) {
+			sources.add(xmlFile.toString());
+			tasks.add(new Callable<ModelDatabase>() {
+				@Override
+				public ModelDatabase call() {
+					return loadModel(loader.forFile(xmlFile));
+				}
+			});
+		}
+
+		List<ModelDatabase> models = new ArrayList<ModelDatabase>();
+		ForkJoinPool pool = new ForkJoinPool(Math.min(xmlFiles.size(), Runtime.getRuntime().availableProcessors()));
+		try {
+			for (Future<ModelDatabase> future : pool.invokeAll(tasks)) {
+				models.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while reading model files", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException("Error while reading model files", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+
+		String duplicates = getProperties().getProperty(MERGE_DUPLICATES_PARAM, ModelMerger.DUPLICATES_IDENTICAL);
+		ModelDatabase result = ModelMerger.merge(sources, models, duplicates);
+
+		log.info("Merged " + xmlFiles.size() + " model files in " + (System.nanoTime() - start) / 1000000 + "ms");
+		return result;
+	}
+
+	/**
+	 * Compares the fingerprints of the model with the ones stored by the last
+	 * run. The current ones are stored by {@link #close()}, once the run
+	 * succeeded.
+	 */
+	private void updateFingerprints(Path file) {
+		Map<String, String> previous = ModelFingerprints.read(file);
+		Map<String, String> current = ModelFingerprints.compute(model);
+
+		Set<String> unchanged = new HashSet<String>();
+		for (Map.Entry<String, String> entry : current.entrySet()) {
+			if (entry.getValue().equals(previous.get(entry.getKey()))) {
+				unchanged.add(entry.getKey());
+			}
+		}
+		unchangedDefinitions = Collections.unmodifiableSet(unchanged);
+
+		if (!current.equals(previous)) {
+			fingerprints = current;
+			fingerprintsFile = file;
+		}
+
+		log.info("Unchanged definitions: " + unchanged.size() + " of " + current.size());
+	}
+
+	/**
+	 * Returns the keys of the tables, views and sequences whose fingerprint
+	 * did not change since the last run, see {@link ModelFingerprints}. Empty
+	 * unless the <code>fingerprints-file</code> property is set.
+	 */
+	public Set<String> getUnchangedDefinitions() {
+		model();
+		return unchangedDefinitions;
+	}
+
+	/**
+	 * @return <code>true</code> if the table, view or sequence did not change
+	 *         since the last run
+	 */
+	public boolean isUnchanged(Definition definition) {
+		String schemaName = definition.getSchema() != null ? definition.getSchema().getName() : "";
+		Set<String> unchanged = getUnchangedDefinitions();
+
+		if (definition instanceof SequenceDefinition) {
+			return unchanged.contains(ModelFingerprints.key(ModelFingerprints.SEQUENCE, schemaName, definition.getName()));
+		} else if (definition instanceof TableDefinition) {
+			return unchanged.contains(ModelFingerprints.key(ModelFingerprints.TABLE, schemaName, definition.getName()))
+					|| unchanged.contains(ModelFingerprints.key(ModelFingerprints.VIEW, schemaName, definition.getName()));
+		}
+		return false;
+	}
+
+	/**
+	 * Reads the model from its snapshot when the <code>snapshot-dir</code>
+	 * property is set and a snapshot of the same model XML exists, parses it
+	 * otherwise.
+	 */
+	private ModelDatabase readModel(VertabeloModelLoader loader, String hash) {
+		String snapshotDir = getProperties().getProperty(SNAPSHOT_DIR_PARAM);
+		if (StringUtils.isEmpty(snapshotDir)) {
+			return unmarshal(loader);
+		}
+
+		if (hash == null) {
+			hash = ModelSnapshot.hash(loader.getVertabeloXMLBytes());
+		}
+
+		ModelSnapshot snapshot = new ModelSnapshot(snapshotDir);
+
+		LoadMetrics.Timer timer = metrics.start(LoadMetrics.SNAPSHOT);
+		ModelDatabase result = null;
+		try {
+			result = snapshot.load(hash);
+		} finally {
+			timer.stop(result != null ? elementCount(result) : 0);
+		}
+
+		if (result != null) {
+			log.info("Loaded model snapshot: " + hash);
+		} else {
+			result = unmarshal(loader);
+			snapshot.store(hash, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Parses the model with the StAX reader unless the <code>xml-binder</code>
+	 * property is <code>jaxb</code>. JAXB is the fallback if there is no StAX
+	 * reader or it fails.
+	 */
+	private ModelDatabase unmarshal(VertabeloModelLoader loader) {
+		String binder = getProperties().getProperty(XML_BINDER_PARAM, XML_BINDER_STAX);
+		if (!XML_BINDER_STAX.equalsIgnoreCase(binder) && !XML_BINDER_JAXB.equalsIgnoreCase(binder)) {
+			throw new IllegalStateException("Unknown \"" + XML_BINDER_PARAM + "\" value: " + binder);
+		}
+
+		LoadMetrics.Timer timer = metrics.start(LoadMetrics.UNMARSHAL);
+		ModelDatabase result = null;
+		try {
+			AbstractStAXModelReader reader = null;
+			if (XML_BINDER_STAX.equalsIgnoreCase(binder)) {
+				reader = createStAXModelReader(loader.getVertabeloXMLVersion());
+			}
+			if (reader != null) {
+				reader.setSkipDiagram(isSkipDiagram());
+				Source source = loader.getVertabeloXMLSource();
+				try {
+					result = reader.read(source);
+				} catch (RuntimeException e) {
+					log.warn("Cannot read model with StAX, falling back to JAXB", e);
+				} finally {
+					VertabeloModelLoader.close(source);
+				}
+			}
+			if (result == null) {
+				result = readModel(loader);
+			}
+			return result;
+		} finally {
+			timer.stop(result != null ? elementCount(result) : 0);
+		}
+	}
+
+	private static int elementCount(ModelDatabase model) {
+		return model.getTables().size() + model.getViews().size() + model.getReferences().size()
+				+ model.getSequences().size();
+	}
+
+	/**
+	 * @return timings of reading the model and building its definitions
+	 */
+	public LoadMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * @return resolved column types of this database
+	 */
+	protected synchronized DataTypeCache getDataTypeCache() {
+		if (dataTypeCache == null) {
+			dataTypeCache = new DataTypeCache(this);
+		}
+		return dataTypeCache;
+	}
+
+	/**
+	 * Records that loading a definition failed. The fingerprints of the model
+	 * are not stored then, so the next run generates everything again.
+	 */
+	void failed() {
+		failed = true;
+	}
+
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (dataTypeCache != null) {
+				dataTypeCache.logStatistics();
+			}
+		}
+
+		if (fingerprints != null) {
+			if (failed) {
+				log.warn("Loading definitions failed, not storing fingerprints: " + fingerprintsFile);
+			} else {
+				ModelFingerprints.write(fingerprintsFile, fingerprints);
+			}
+			fingerprints = null;
+		}
+
+		// nothing to report if no model was loaded, e.g. by the databases VertabeloDatabase delegates parsing to
+		if (!metrics.isEmpty()) {
+			metrics.logSummary();
+			String metricsFile = getProperties().getProperty(METRICS_FILE_PARAM);
+			if (!StringUtils.isEmpty(metricsFile)) {
+				metrics.write(Paths.get(metricsFile));
+			}
+		}
+		metrics.unregister();
+
+		super.close();
+	}
+
+	@Override
+	protected DSLContext create0() {
+		SQLDialect dialect = SQLDialect.DEFAULT;
+
+		try {
+			dialect = SQLDialect.valueOf(getProperties().getProperty("dialect"));
+		} catch (Exception ignore) {
+		}
+
+		return DSL.using(dialect.family());
+	}
+
+	@Override
+	protected void loadPrimaryKeys(DefaultRelations relations) throws SQLException {
+		PendingRelations pending = pendingRelations();
+
+		LoadMetrics.Timer timer = metrics.start(LoadMetrics.PRIMARY_KEYS);
+		int count = 0;
+		try {
+			for (TableRelations table : pending.tables) {
+				for (PendingKey key : table.primaryKeys) {
+					relations.addPrimaryKey(key.name, key.table, key.column);
+					count++;
+				}
+			}
+		} finally {
+			timer.stop(count);
+		}
+	}
+
+	private String getTablePkName(ModelTable table) {
+
+		ModelKey pk = table.getPrimaryKey();
+
+		if (pk != null && !StringUtils.isEmpty(pk.getName())) {
+			return pk.getName();
+		}
+
+		return table.getName().toUpperCase() + "_PK";
+	}
+
+	@Override
+	protected void loadUniqueKeys(DefaultRelations relations) {
+		PendingRelations pending = pendingRelations();
+
+		LoadMetrics.Timer timer = metrics.start(LoadMetrics.UNIQUE_KEYS);
+		int count = 0;
+		try {
+			for (TableRelations table : pending.tables) {
+				for (PendingKey key : table.uniqueKeys) {
+					relations.addUniqueKey(key.name, key.table, key.column);
+					count++;
+				}
+			}
+		} finally {
+			timer.stop(count);
+		}
+	}
+
+	@Override
+	protected void loadForeignKeys(DefaultRelations relations) throws SQLException {
+		PendingRelations pending = pendingRelations();
+
+		LoadMetrics.Timer timer = metrics.start(LoadMetrics.FOREIGN_KEYS);
+		int count = 0;
+		try {
+			for (List<PendingForeignKey> foreignKeys : pending.foreignKeys) {
+				for (PendingForeignKey key : foreignKeys) {
+					relations.addForeignKey(key.name, key.fkTable, key.fkColumn, key.uniqueKeyName, key.pkTable);
+					count++;
+				}
+			}
+		} finally {
+			timer.stop(count);
+		}
+	}
+
+	@Override
+	protected void loadCheckConstraints(DefaultRelations relations) throws SQLException {
+		PendingRelations pending = pendingRelations();
+
+		LoadMetrics.Timer timer = metrics.start(LoadMetrics.CHECKS);
+		int count = 0;
+		try {
+			for (TableRelations table : pending.tables) {
+				for (CheckConstraintDefinition check : table.checks) {
+					relations.addCheckConstraint(check.getTable(), check);
+					count++;
+				}
+			}
+		} finally {
+			timer.stop(count);
+		}
+	}
+
+	/**
+	 * Returns the keys and checks of all generated tables, collected on first
+	 * use. With the <code>parallel-relations</code> property set to
+	 * <code>true</code> they are collected on a fork join pool, tables and
+	 * references are still added to the relations in model order.
+	 */
+	private synchronized PendingRelations pendingRelations() {
+		if (pendingRelations != null) {
+			return pendingRelations;
+		}
+
+		ModelDatabase generated = generatedModel();
+
+		LoadMetrics.Timer timer = metrics.start(LoadMetrics.RELATIONS);
+		int count = 0;
+		try {
+			final List<ModelTable> tables = generated.getTables();
+			final List<String> schemaNames = new ArrayList<String>(tables.size());
+			for (ModelTable table : tables) {
+				schemaNames.add(getSchemaName(table));
+			}
+
+			List<ModelReference> references = generated.getReferences();
+
+			final TableRelations[] tableRelations = new TableRelations[tables.size()];
+			final List<List<PendingForeignKey>> foreignKeys = new ArrayList<List<PendingForeignKey>>(
+					Collections.nCopies(references.size(), (List<PendingForeignKey>) null));
+
+			if (Boolean.parseBoolean(getProperties().getProperty(PARALLEL_RELATIONS_PARAM))) {
+				// everything the workers share is lazily initialized, do it up front
+				for (SchemaDefinition schema : getSchemata()) {
+					getTableDefinition(schema, "");
+					for (TableDefinition table : getTables(schema)) {
+						table.getColumns();
+					}
+				}
+
+				ForkJoinPool pool = new ForkJoinPool(parallelism());
+				try {
+					pool.invoke(new CollectRelations(0, tables.size() + references.size(), generated.getIndex(), tables,
+							schemaNames, references, tableRelations, foreignKeys));
+				} finally {
+					pool.shutdown();
+				}
+			} else {
+				new CollectRelations(0, tables.size() + references.size(), generated.getIndex(), tables, schemaNames,
+						references, tableRelations, foreignKeys).compute();
+			}
+
+			pendingRelations = new PendingRelations(Arrays.asList(tableRelations), foreignKeys);
+			count = tables.size() + references.size();
+			return pendingRelations;
+		} catch (RuntimeException | Error e) {
+			failed();
+			throw e;
+		} finally {
+			timer.stop(count);
+		}
+	}
+
+	/**
+	 * Collects the relations of a range of tables followed by references.
+	 * Results are stored by position, so they do not depend on the order in
+	 * which ranges complete. The index of the generated model is passed in,
+	 * workers cannot call {@link #generatedModel()} while the thread waiting
+	 * for them holds the database lock.
+	 */
+	private final class CollectRelations extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private static final int THRESHOLD = 64;
+
+		private final int from;
+		private final int to;
+		private final ModelIndex index;
+		private final List<ModelTable> tables;
+		private final List<String> schemaNames;
+		private final List<ModelReference> references;
+		private final TableRelations[] tableRelations;
+		private final List<List<PendingForeignKey>> foreignKeys;
+
+		CollectRelations(int from, int to, ModelIndex index, List<ModelTable> tables, List<String> schemaNames,
+				List<ModelReference> references, TableRelations[] tableRelations, List<List<PendingForeignKey>> foreignKeys) {
+			this.from = from;
+			this.to = to;
+			this.index = index;
+			this.tables = tables;
+			this.schemaNames = schemaNames;
+			this.references = references;
+			this.tableRelations = tableRelations;
+			this.foreignKeys = foreignKeys;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > THRESHOLD && getPool() != null) {
+				int middle = (from + to) >>> 1;
+				invokeAll(
+					new CollectRelations(from, middle, index, tables, schemaNames, references, tableRelations, foreignKeys),
+					new CollectRelations(middle, to, index, tables, schemaNames, references, tableRelations, foreignKeys));
+				return;
+			}
+
+			for (int i = from; i < to; i++) {
+				if (i < tables.size()) {
+					tableRelations[i] = collectTableRelations(tables.get(i), schemaNames.get(i));
+				} else {
+					int reference = i - tables.size();
+					foreignKeys.set(reference, collectForeignKeys(index, references.get(reference)));
+				}
+			}
+		}
+	}
+
+	private TableRelations collectTableRelations(ModelTable table, String schemaName) {
+		TableRelations result = new TableRelations();
+
+		SchemaDefinition schema = getSchema(schemaName);
+		TableDefinition tableDefinition = getTableDefinition(schema, table.getName());
+
+		if (tableDefinition == null) {
+			return result;
+		}
+
+		if (table.getPrimaryKey() != null) {
+			String pkName = getTablePkName(table);
+
+			for (ModelColumn column : table.getPrimaryKey().getColumns()) {
+				result.primaryKeys.add(new PendingKey(pkName, tableDefinition, tableDefinition.getColumn(column.getName())));
+			}
+		}
+
+		// iterate through all UNIQUE keys for this table
+		for (ModelKey alternateKey : table.getAlternateKeys()) {
+
+			// iterate through all columns of this key
+			for (ModelColumn column : alternateKey.getColumns()) {
+				result.uniqueKeys.add(new PendingKey(alternateKey.getName(), tableDefinition, tableDefinition.getColumn(column.getName())));
+			}
+		}
+
+		// iterate through all table checks
+		for (ModelCheck tableCheck : table.getChecks()) {
+			result.checks.add(new DefaultCheckConstraintDefinition(
+					schema, tableDefinition, tableCheck.getName(), tableCheck.getCheckExpression()));
+		}
+
+		// iterate through all columns and find columns with checks
+		for (ModelColumn column : table.getColumns()) {
+			if (!StringUtils.isBlank(column.getCheckExpression())) {
+				result.checks.add(new DefaultCheckConstraintDefinition(
+						schema, tableDefinition, table.getName() + "_" + column.getName() + "_check",
+						column.getCheckExpression()));
+			}
+		}
+
+		return result;
+	}
+
+	private List<PendingForeignKey> collectForeignKeys(ModelIndex index, ModelReference reference) {
+		ModelTable pkTable = reference.getPKTable();
+		ModelTable fkTable = reference.getFKTable();
+
+		String pkSchemaName = index.getSchemaName(pkTable);
+		if (!getInputSchemata().contains(pkSchemaName)) {
+			return Collections.emptyList();
+		}
+
+		// both tables are looked up in their own schema
+		TableDefinition pkTableDefinition = getTableDefinition(getSchema(pkSchemaName), pkTable.getName());
+		TableDefinition fkTableDefinition = getTableDefinition(getSchema(index.getSchemaName(fkTable)), fkTable.getName());
+		if (pkTableDefinition == null || fkTableDefinition == null) {
+			// table not generated - ignore this foreign key
+			return Collections.emptyList();
+		}
+
+		// we need to find unique key among PK and all alternate
+		// keys...
+		String uniqueKeyName = findUniqueConstraintNameForReference(index, reference);
+		if (uniqueKeyName == null) {
+			// no matching key - ignore this foreign key
+			return Collections.emptyList();
+		}
+
+		List<PendingForeignKey> result = new ArrayList<PendingForeignKey>(reference.getReferenceColumns().size());
+		for (ModelReferenceColumn referenceColumn : reference.getReferenceColumns()) {
+			ModelColumn fkColumn = referenceColumn.getFKColumn();
+			ColumnDefinition fkColumnDefinition = fkTableDefinition.getColumn(fkColumn.getName());
+
+			result.add(new PendingForeignKey(reference.getName(), fkTableDefinition, fkColumnDefinition,
+				uniqueKeyName, pkTableDefinition));
+		}
+		return result;
+	}
+
+	private String findUniqueConstraintNameForReference(ModelIndex index, ModelReference reference) {
+		ModelTable pkTable = reference.getPKTable();
+
+		ModelKey uniqueKey = index.getUniqueKey(pkTable, reference.getPKColumns());
+		if (uniqueKey != null && uniqueKey == pkTable.getPrimaryKey()) {
+			// PK matches FK
+			log.info("Primary key constraint matches foreign key: " + reference.getName());
+			return getTablePkName(pkTable);
+		} else if (uniqueKey != null) {
+			// AK matches FK
+			log.info("Alternate key constraint matches foreign key: " + reference.getName());
+			return uniqueKey.getName();
+		}
+
+		// no match
+		log.info("No matching unique constraint for foreign key: " + reference.getName());
+		return null;
+	}
+
+	private static final class PendingRelations {
+
+		final List<TableRelations> tables;
+		final List<List<PendingForeignKey>> foreignKeys;
+
+		PendingRelations(List<TableRelations> tables, List<List<PendingForeignKey>> foreignKeys) {
+			this.tables = tables;
+			this.foreignKeys = foreignKeys;
+		}
+	}
+
+	private static final class TableRelations {
+
+		final List<PendingKey> primaryKeys = new ArrayList<PendingKey>();
+		final List<PendingKey> uniqueKeys = new ArrayList<PendingKey>();
+		final List<CheckConstraintDefinition> checks = new ArrayList<CheckConstraintDefinition>();
+	}
+
+	private static final class PendingKey {
+
+		final String name;
+		final TableDefinition table;
+		final ColumnDefinition column;
+
+		PendingKey(String name, TableDefinition table, ColumnDefinition column) {
+			this.name = name;
+			this.table = table;
+			this.column = column;
+		}
+	}
+
+	private static final class PendingForeignKey {
+
+		final String name;
+		final TableDefinition fkTable;
+		final ColumnDefinition fkColumn;
+		final String uniqueKeyName;
+		final TableDefinition pkTable;
+
+		PendingForeignKey(String name, TableDefinition fkTable, ColumnDefinition fkColumn, String uniqueKeyName,
+				TableDefinition pkTable) {
+			this.name = name;
+			this.fkTable = fkTable;
+			this.fkColumn = fkColumn;
+			this.uniqueKeyName = uniqueKeyName;
+			this.pkTable = pkTable;
+		}
+	}
+
+	@Override
+	protected List<CatalogDefinition> getCatalogs0() throws SQLException {
+		List<CatalogDefinition> result = new ArrayList<CatalogDefinition>();
+		result.add(new CatalogDefinition(this, "", ""));
+		return result;
+	}
+
+	@Override
+	protected List<SchemaDefinition> getSchemata0() throws SQLException {
+		ModelDatabase model = model();
+
+		LoadMetrics.Timer timer = metrics.start(LoadMetrics.SCHEMATA);
+		List<SchemaDefinition> result = new ArrayList<SchemaDefinition>();
+		try {
+			// schemas of all tables and views, including the ones not generated
+			for (String schemaName : ModelIndex.schemaNamesOf(model)) {
+				result.add(new SchemaDefinition(this, schemaName, null));
+			}
+			return result;
+		} finally {
+			timer.stop(result.size());
+		}
+	}
+
+	/**
+	 * Index columns are looked up by name among the column definitions of
+	 * their table, which may lack columns jOOQ excluded.
+	 */
+	@Override
+	protected List<IndexDefinition> getIndexes0() throws SQLException {
+		generatedModel();
+
+		LoadMetrics.Timer timer = metrics.start(LoadMetrics.INDEXES);
+		List<IndexDefinition> result = new ArrayList<IndexDefinition>();
+		try {
+			for (TableDefinition definition : generatedTables) {
+				ModelTable table = ((VertabeloTableDefinition) definition).table;
+				if (table == null || table.getIndexes().isEmpty()) {
+					continue;
+				}
+
+				Set<ModelColumn> columns = Collections.newSetFromMap(new IdentityHashMap<ModelColumn, Boolean>());
+				columns.addAll(table.getColumns());
+
+				for (ModelTableIndex index : table.getIndexes()) {
+					result.add(new VertabeloIndexDefinition(definition, index, columns));
+				}
+			}
+
+			return result;
+		} catch (RuntimeException | Error e) {
+			failed();
+			throw e;
+		} finally {
+			timer.stop(result.size());
+		}
+	}
+
+	private static final class VertabeloIndexDefinition extends AbstractIndexDefinition {
+
+		private final List<IndexColumnDefinition> indexColumns = new ArrayList<IndexColumnDefinition>();
+
+		/**
+		 * @param columns model columns of the table
+		 */
+		VertabeloIndexDefinition(TableDefinition table, ModelTableIndex index, Set<ModelColumn> columns) {
+			super(table.getSchema(), index.getName(), table, false);
+
+			int position = 0;
+			for (ModelIndexColumn indexColumn : index.getColumns()) {
+				ColumnDefinition column = columns.contains(indexColumn.getColumn())
+						? table.getColumn(indexColumn.getColumn().getName())
+						: null;
+				if (column == null) {
+					// unresolved, of another table or excluded - ignore this column
+					continue;
+				}
+
+				indexColumns.add(new DefaultIndexColumnDefinition(this, column,
+						indexColumn.isAscending() ? SortOrder.ASC : SortOrder.DESC, ++position));
+			}
+		}
+
+		@Override
+		protected List<IndexColumnDefinition> getIndexColumns0() {
+			return indexColumns;
+		}
+	}
+
+	@Override
+	protected List<SequenceDefinition> getSequences0() throws SQLException {
+		generatedModel();
+		return new ArrayList<SequenceDefinition>(generatedSequences);
+	}
+
+	private SequenceDefinition getSequenceDefinition(SchemaDefinition schema, ModelSequence sequence) {
+		BigInteger minValue = parseSequenceNumber(sequence, "MinValue", sequence.getMinValue());
+		BigInteger maxValue = parseSequenceNumber(sequence, "MaxValue", sequence.getMaxValue());
+		DataTypeDefinition type = getSequenceDataType(schema, minValue, maxValue);
+
+		return new DefaultSequenceDefinition(schema, sequence.getName(), type, null,
+				number(parseSequenceNumber(sequence, "StartWith", sequence.getStartWith())),
+				number(parseSequenceNumber(sequence, "IncrementBy", sequence.getIncrementBy())),
+				number(minValue), number(maxValue), sequence.isCycle(),
+				number(parseSequenceNumber(sequence, "Cache", sequence.getCache())));
+	}
+
+	/**
+	 * @return the narrowest integer type holding all values between the
+	 *         bounds, <code>BIGINT</code> unless both bounds are set
+	 */
+	private DataTypeDefinition getSequenceDataType(SchemaDefinition schema, BigInteger minValue, BigInteger maxValue) {
+		// a missing bound is the one of a BIGINT
+		int bitLength = minValue != null && maxValue != null ? 0 : 63;
+		int precision = 0;
+		for (BigInteger bound : Arrays.asList(minValue, maxValue)) {
+			if (bound != null) {
+				bitLength = Math.max(bitLength, bound.bitLength());
+				precision = Math.max(precision, bound.abs().toString().length());
+			}
+		}
+
+		if (bitLength <= 15) {
+			return new DefaultDataTypeDefinition(this, schema, "SMALLINT");
+		} else if (bitLength <= 31) {
+			return new DefaultDataTypeDefinition(this, schema, "INTEGER");
+		} else if (bitLength <= 63) {
+			return new DefaultDataTypeDefinition(this, schema, "BIGINT");
+		}
+		return new DefaultDataTypeDefinition(this, schema, "NUMERIC", 0, precision, 0, (Boolean) null, (String) null);
+	}
+
+	/**
+	 * @return the number or <code>null</code> if not set or not an integer,
+	 *         with a warning
+	 */
+	private static BigInteger parseSequenceNumber(ModelSequence sequence, String element, String value) {
+		if (value == null) {
+			return null;
+		}
+
+		try {
+			return new BigInteger(value);
+		} catch (NumberFormatException e) {
+			log.warn("Ignoring " + element + " of sequence " + sequence.getName() + ", not an integer: " + value);
+			return null;
+		}
+	}
+
+	private static Number number(BigInteger value) {
+		return value != null && value.bitLength() <= 63 ? (Number) value.longValue() : value;
+	}
+
+	@Override
+	protected List<TableDefinition> getTables0() throws SQLException {
+		model();
+
+		LoadMetrics.Timer timer = metrics.start(LoadMetrics.TABLES);
+		List<TableDefinition> result = Collections.emptyList();
+		try {
+			generatedModel();
+			result = new ArrayList<TableDefinition>(generatedTables);
+		} finally {
+			timer.stop(result.size());
+		}
+
+		if (Boolean.parseBoolean(getProperties().getProperty(PARALLEL_COLUMNS_PARAM))) {
+			materializeColumns(result);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the part of the model jOOQ generates: tables, views and
+	 * sequences of the input schemata that the configured includes and
+	 * excludes keep, and the references between the kept tables. Keys,
+	 * checks, references and lookups are only built for this part, which
+	 * matters when a few tables of a large model are generated.
+	 *
+	 * jOOQ filters the definitions again, with the same result.
+	 */
+	protected synchronized ModelDatabase generatedModel() {
+		if (generatedModel != null) {
+			return generatedModel;
+		}
+
+		try {
+			ModelDatabase model = model();
+			Set<String> inputSchemata = new HashSet<String>(getInputSchemata());
+
+			List<VertabeloTableDefinition> definitions = new ArrayList<VertabeloTableDefinition>();
+			for (ModelTable table : model.getTables()) {
+				String schemaName = getSchemaName(table);
+				if (inputSchemata.contains(schemaName)) {
+					definitions.add(new VertabeloTableDefinition(getSchema(schemaName), table));
+				}
+			}
+			for (ModelView view : model.getViews()) {
+				String schemaName = getSchemaName(view);
+				if (inputSchemata.contains(schemaName)) {
+					definitions.add(new VertabeloTableDefinition(getSchema(schemaName), view));
+				}
+			}
+
+			// the same matching jOOQ does, without recording the definitions as included or excluded. Filters
+			// are left to jOOQ, they may be stateful like the one of the generator avoiding ambiguous classes
+			List<VertabeloTableDefinition> included = filterExcludeInclude(definitions, getExcludes(), getIncludes(),
+					Collections.<Filter> emptyList());
+
+			List<ModelTable> tables = new ArrayList<ModelTable>();
+			List<ModelView> views = new ArrayList<ModelView>();
+			Set<ModelTable> includedTables = Collections.newSetFromMap(new IdentityHashMap<ModelTable, Boolean>());
+			for (VertabeloTableDefinition definition : included) {
+				if (definition.table != null) {
+					tables.add(definition.table);
+					includedTables.add(definition.table);
+				} else {
+					views.add(definition.view);
+				}
+			}
+
+			List<ModelReference> references = new ArrayList<ModelReference>();
+			for (ModelReference reference : model.getReferences()) {
+				if (includedTables.contains(reference.getPKTable()) && includedTables.contains(reference.getFKTable())) {
+					references.add(reference);
+				}
+			}
+
+			List<SequenceDefinition> sequenceDefinitions = new ArrayList<SequenceDefinition>();
+			Map<SequenceDefinition, ModelSequence> modelSequences = new IdentityHashMap<SequenceDefinition, ModelSequence>();
+			for (ModelSequence sequence : model.getSequences()) {
+				String schemaName = getSchemaName(sequence);
+				if (inputSchemata.contains(schemaName)) {
+					SequenceDefinition definition = getSequenceDefinition(getSchema(schemaName), sequence);
+					sequenceDefinitions.add(definition);
+					modelSequences.put(definition, sequence);
+				}
+			}
+
+			List<SequenceDefinition> includedSequences = filterExcludeInclude(sequenceDefinitions, getExcludes(),
+					getIncludes(), Collections.<Filter> emptyList());
+			List<ModelSequence> sequences = new ArrayList<ModelSequence>();
+			for (SequenceDefinition definition : includedSequences) {
+				sequences.add(modelSequences.get(definition));
+			}
+
+			generatedTables = new ArrayList<TableDefinition>(included);
+			generatedSequences = includedSequences;
+			generatedModel = new ModelDatabase(model.getVersion(), tables, views, references, sequences);
+
+			if (tables.size() + views.size() < model.getTables().size() + model.getViews().size()) {
+				log.info("Generating " + tables.size() + " of " + model.getTables().size() + " tables and "
+						+ views.size() + " of " + model.getViews().size() + " views");
+			}
+			return generatedModel;
+		} catch (RuntimeException | Error e) {
+			failed();
+			throw e;
+		}
+	}
+
+	/**
+	 * Builds the column lists of all tables and views. Their types are
+	 * resolved on a fork join pool first, the columns are then built on this
+	 * thread: building them goes through jOOQ's synthetic identities and
+	 * column filters, which are not safe to use from several threads. Table
+	 * definitions keep their columns, the generator only reads them afterwards.
+	 */
+	private void materializeColumns(List<TableDefinition> tables) {
+		long start = System.nanoTime();
+
+		DataTypeCache dataTypes = getDataTypeCache();
+		ForkJoinPool pool = new ForkJoinPool(parallelism());
+		try {
+			pool.invoke(new ResolveColumnTypes(tables, dataTypes, 0, tables.size()));
+		} finally {
+			pool.shutdown();
+		}
+
+		for (TableDefinition table : tables) {
+			table.getColumns();
+		}
+
+		log.info("Materialized columns of " + tables.size() + " tables and views in "
+				+ (System.nanoTime() - start) / 1000000 + "ms");
+	}
+
+	private static final class ResolveColumnTypes extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private static final int THRESHOLD = 16;
+
+		private final List<TableDefinition> tables;
+		private final DataTypeCache dataTypes;
+		private final int from;
+		private final int to;
+
+		ResolveColumnTypes(List<TableDefinition> tables, DataTypeCache dataTypes, int from, int to) {
+			this.tables = tables;
+			this.dataTypes = dataTypes;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > THRESHOLD) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ResolveColumnTypes(tables, dataTypes, from, middle),
+						new ResolveColumnTypes(tables, dataTypes, middle, to));
+				return;
+			}
+
+			for (int i = from; i < to; i++) {
+				((VertabeloTableDefinition) tables.get(i)).resolveColumnTypes(dataTypes);
+			}
+		}
+	}
+
+	/**
+	 * @return number of threads of the parallel loading pools, all available
+	 *         cores unless the <code>parallelism</code> property is set
+	 */
+	private int parallelism() {
+		String parallelism = getProperties().getProperty(PARALLELISM_PARAM);
+		if (StringUtils.isEmpty(parallelism)) {
+			return Runtime.getRuntime().availableProcessors();
+		}
+
+		try {
+			int result = Integer.parseInt(parallelism.trim());
+			if (result > 0) {
+				return result;
+			}
+		} catch (NumberFormatException ignore) {
+		}
+		throw new IllegalStateException("Invalid \"" + PARALLELISM_PARAM + "\" value: " + parallelism);
+	}
+
+	@Override
+	protected List<EnumDefinition> getEnums0() {
+		List<EnumDefinition> result = new ArrayList<EnumDefinition>();
+		return result;
+	}
+
+	@Override
+	protected List<DomainDefinition> getDomains0() throws SQLException {
+		List<DomainDefinition> result = new ArrayList<DomainDefinition>();
+		return result;
+	}
+
+	@Override
+	protected List<UDTDefinition> getUDTs0() {
+		List<UDTDefinition> result = new ArrayList<UDTDefinition>();
+		return result;
+	}
+
+	@Override
+	protected List<ArrayDefinition> getArrays0() {
+		List<ArrayDefinition> result = new ArrayList<ArrayDefinition>();
+		return result;
+	}
+
+	@Override
+	protected List<RoutineDefinition> getRoutines0() {
+		List<RoutineDefinition> result = new ArrayList<RoutineDefinition>();
+		return result;
+	}
+
+	@Override
+	protected List<PackageDefinition> getPackages0() {
+		List<PackageDefinition> result = new ArrayList<PackageDefinition>();
+		return result;
+	}
+
+	/**
+	 * @return the schema additional property of the element, an empty string
+	 *         if it is not set
+	 */
+	protected String getSchemaName(ModelElement element) {
+		return ModelIndex.schemaNameOf(element);
+	}
+
+	/**
+	 * Looks up a generated table by name. Unlike {@link #getTable(SchemaDefinition, String)},
+	 * which scans all tables of the schema, the tables of a schema are hashed
+	 * once.
+	 *
+	 * @return the table or <code>null</code> if it is not generated
+	 */
+	protected TableDefinition getTableDefinition(SchemaDefinition schema, String name) {
+		if (schema == null) {
+			return null;
+		}
+
+		Map<String, TableDefinition> tables = tablesBySchema.get(schema);
+		if (tables == null) {
+			tables = new HashMap<String, TableDefinition>();
+			for (TableDefinition table : getTables(schema)) {
+				if (!tables.containsKey(table.getName())) {
+					tables.put(table.getName(), table);
+				}
+			}
+			tablesBySchema.put(schema, tables);
+		}
+
+		return tables.get(name);
+	}
+}
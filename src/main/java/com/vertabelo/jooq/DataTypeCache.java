@@ -0,0 +1,118 @@
+package com.vertabelo.jooq;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jooq.DataType;
+import org.jooq.SQLDialect;
+import org.jooq.exception.SQLDialectNotSupportedException;
+import org.jooq.impl.DefaultDataType;
+import org.jooq.impl.SQLDataType;
+import org.jooq.meta.DataTypeDefinition;
+import org.jooq.meta.DefaultDataTypeDefinition;
+import org.jooq.meta.Database;
+import org.jooq.meta.SchemaDefinition;
+import org.jooq.tools.JooqLogger;
+
+/**
+ * Resolves Vertabelo column types of one database.
+ *
+ * Models repeat a small number of distinct type strings over many columns, so
+ * each type string is resolved once for the dialect of the database. Type
+ * definitions are shared by all columns with the same type, schema,
+ * nullability and default flag.
+ */
+public class DataTypeCache {
+
+	private static final JooqLogger log = JooqLogger.getLogger(DataTypeCache.class);
+
+	private final Database database;
+	private final SQLDialect dialect;
+
+	private final ConcurrentMap<String, ResolvedType> types = new ConcurrentHashMap<String, ResolvedType>();
+	private final ConcurrentMap<List<Object>, DataTypeDefinition> definitions = new ConcurrentHashMap<List<Object>, DataTypeDefinition>();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public DataTypeCache(Database database) {
+		this.database = database;
+		this.dialect = database.getDialect();
+	}
+
+	/**
+	 * @param type Vertabelo column type
+	 * @param unsupportedAsOther resolve types unknown to the dialect as
+	 *            {@link SQLDataType#OTHER} instead of failing
+	 * @return the type definition of a column
+	 */
+	public DataTypeDefinition getDataType(SchemaDefinition schema, String type, boolean nullable, boolean defaulted,
+			boolean unsupportedAsOther) {
+		List<Object> key = Arrays.<Object> asList(schema != null ? schema.getName() : null, type, nullable, defaulted,
+				unsupportedAsOther);
+
+		DataTypeDefinition definition = definitions.get(key);
+		if (definition != null) {
+			hits.incrementAndGet();
+			return definition;
+		}
+		misses.incrementAndGet();
+
+		ResolvedType resolved = resolve(type);
+		DataType<?> dataType = resolved.dataType;
+		if (dataType == null) {
+			if (!unsupportedAsOther) {
+				throw resolved.exception;
+			}
+			dataType = SQLDataType.OTHER;
+		}
+
+		definition = new DefaultDataTypeDefinition(
+			database,
+			schema,
+			dataType.getTypeName(),
+			dataType.hasLength() ? dataType.length() : null,
+			dataType.hasPrecision() ? dataType.precision() : null,
+			dataType.hasScale() ? dataType.scale() : null,
+			nullable,
+			defaulted);
+
+		DataTypeDefinition previous = definitions.putIfAbsent(key, definition);
+		return previous != null ? previous : definition;
+	}
+
+	private ResolvedType resolve(String type) {
+		ResolvedType resolved = types.get(type);
+		if (resolved == null) {
+			try {
+				resolved = new ResolvedType(DefaultDataType.getDataType(dialect, type), null);
+			} catch (SQLDialectNotSupportedException e) {
+				resolved = new ResolvedType(null, e);
+			}
+			types.putIfAbsent(type, resolved);
+		}
+		return resolved;
+	}
+
+	/**
+	 * Logs the number of type lookups served from the cache.
+	 */
+	public void logStatistics() {
+		log.debug("Data type cache for " + dialect + ": " + hits.get() + " hits, " + misses.get() + " misses, "
+				+ types.size() + " distinct type names");
+	}
+
+	private static final class ResolvedType {
+
+		final DataType<?> dataType;
+		final SQLDialectNotSupportedException exception;
+
+		ResolvedType(DataType<?> dataType, SQLDialectNotSupportedException exception) {
+			this.dataType = dataType;
+			this.exception = exception;
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.vertabelo.jooq;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+import org.jooq.tools.JooqLogger;
+
+/**
+ * Hides the diagram layout sections of a model, e.g. table displays with
+ * their positions and colors, from the reader of the document. Their events
+ * are consumed without building anything, so neither JAXB nor the StAX
+ * reader sees them.
+ */
+final class DiagramSkippingReader extends StreamReaderDelegate {
+
+	private static final JooqLogger log = JooqLogger.getLogger(DiagramSkippingReader.class);
+
+	// children of the root element holding layout only, control points are part of the reference displays
+	static final Set<String> DIAGRAM_SECTIONS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+			"TableDisplays", "ViewDisplays", "ReferenceDisplays", "Notes", "Areas", "Texts")));
+
+	private int depth;
+	private long skippedElements;
+	private long skippedBytes;
+
+	DiagramSkippingReader(XMLStreamReader reader) {
+		super(reader);
+	}
+
+	@Override
+	public int next() throws XMLStreamException {
+		int event = super.next();
+		while (event == XMLStreamConstants.START_ELEMENT && depth == 1
+				&& DIAGRAM_SECTIONS.contains(getLocalName())) {
+			skipSection();
+			event = super.next();
+		}
+
+		if (event == XMLStreamConstants.START_ELEMENT) {
+			depth++;
+		} else if (event == XMLStreamConstants.END_ELEMENT) {
+			depth--;
+		}
+		return event;
+	}
+
+	@Override
+	public int nextTag() throws XMLStreamException {
+		int event = next();
+		while (event == XMLStreamConstants.SPACE || event == XMLStreamConstants.COMMENT
+				|| event == XMLStreamConstants.PROCESSING_INSTRUCTION
+				|| (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) && isWhiteSpace()) {
+			event = next();
+		}
+		if (event != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_ELEMENT) {
+			throw new XMLStreamException("Expected start or end tag", getLocation());
+		}
+		return event;
+	}
+
+	private void skipSection() throws XMLStreamException {
+		int start = getLocation().getCharacterOffset();
+		int sectionDepth = 1;
+		skippedElements++;
+
+		while (sectionDepth > 0 && super.hasNext()) {
+			int event = super.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				sectionDepth++;
+				skippedElements++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				sectionDepth--;
+			}
+		}
+
+		int end = getLocation().getCharacterOffset();
+		if (start >= 0 && end >= start) {
+			skippedBytes += end - start;
+		}
+	}
+
+	/**
+	 * @return elements in the skipped sections, including the sections
+	 */
+	long getSkippedElements() {
+		return skippedElements;
+	}
+
+	/**
+	 * @return size of the skipped sections in the document, as reported by
+	 *         the parser, <code>0</code> if it does not report offsets
+	 */
+	long getSkippedBytes() {
+		return skippedBytes;
+	}
+
+	void logSummary() {
+		if (skippedElements > 0) {
+			log.info("Skipped diagram layout: " + skippedElements + " elements, " + (skippedBytes >> 10) + " KB");
+		}
+	}
+}
@@ -0,0 +1,306 @@
+package com.vertabelo.jooq;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.jooq.tools.JooqLogger;
+
+/**
+ * Wall time, allocated bytes and element counts of each phase of reading a
+ * model and building its definitions.
+ *
+ * A phase may run several times, e.g. columns are built table by table, all
+ * runs add up. Phases may nest, relations include columns built on demand.
+ * Allocations are measured on the thread that runs a phase, work it hands to
+ * a fork join pool is not included. Allocations are reported as -1 if the
+ * JVM cannot measure them.
+ */
+public class LoadMetrics implements LoadMetricsMXBean {
+
+	private static final JooqLogger log = JooqLogger.getLogger(LoadMetrics.class);
+
+	public static final String FETCH = "fetch";
+	public static final String READ = "read";
+	public static final String VERSION = "version";
+	public static final String SNAPSHOT = "snapshot";
+	public static final String UNMARSHAL = "unmarshal";
+	public static final String SCHEMATA = "schemata";
+	public static final String TABLES = "tables";
+	public static final String COLUMNS = "columns";
+	public static final String RELATIONS = "relations";
+	public static final String PRIMARY_KEYS = "primary-keys";
+	public static final String UNIQUE_KEYS = "unique-keys";
+	public static final String FOREIGN_KEYS = "foreign-keys";
+	public static final String CHECKS = "checks";
+	public static final String INDEXES = "indexes";
+
+	private static final String[] PHASES = { FETCH, READ, VERSION, SNAPSHOT, UNMARSHAL, SCHEMATA, TABLES, COLUMNS,
+			RELATIONS, PRIMARY_KEYS, UNIQUE_KEYS, FOREIGN_KEYS, CHECKS, INDEXES };
+
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	// com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long), looked up reflectively as not all JVMs have it
+	private static final Method THREAD_ALLOCATED_BYTES = threadAllocatedBytes();
+
+	private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+	// all phases in pipeline order, the map itself is never modified
+	private final Map<String, Phase> phases = new LinkedHashMap<String, Phase>();
+
+	private ObjectName objectName;
+
+	public LoadMetrics() {
+		for (String phase : PHASES) {
+			phases.put(phase, new Phase());
+		}
+	}
+
+	private static Method threadAllocatedBytes() {
+		try {
+			Class<?> type = Class.forName("com.sun.management.ThreadMXBean");
+			if (type.isInstance(THREADS)
+					&& Boolean.TRUE.equals(type.getMethod("isThreadAllocatedMemorySupported").invoke(THREADS))
+					&& Boolean.TRUE.equals(type.getMethod("isThreadAllocatedMemoryEnabled").invoke(THREADS))) {
+				return type.getMethod("getThreadAllocatedBytes", long.class);
+			}
+		} catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+			log.debug("Thread allocation measurement unavailable", e);
+		}
+		return null;
+	}
+
+	private static boolean isAllocationAvailable() {
+		return THREAD_ALLOCATED_BYTES != null;
+	}
+
+	/**
+	 * @return bytes allocated by the current thread so far, -1 if unavailable
+	 */
+	private static long allocatedBytes() {
+		if (THREAD_ALLOCATED_BYTES == null) {
+			return -1;
+		}
+
+		try {
+			return (Long) THREAD_ALLOCATED_BYTES.invoke(THREADS, Thread.currentThread().getId());
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Starts a run of a phase on the current thread.
+	 */
+	public Timer start(String phase) {
+		Phase result = phases.get(phase);
+		if (result == null) {
+			throw new IllegalArgumentException("Unknown phase: " + phase);
+		}
+		return new Timer(result);
+	}
+
+	/**
+	 * @return <code>true</code> if no phase ran yet
+	 */
+	public boolean isEmpty() {
+		for (Phase phase : phases.values()) {
+			if (phase.calls.get() > 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public Map<String, Long> getCalls() {
+		Map<String, Long> result = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, Phase> entry : phases.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().calls.get());
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, Long> getWallTimeMillis() {
+		Map<String, Long> result = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, Phase> entry : phases.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().nanos.get() / 1000000);
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, Long> getAllocatedBytes() {
+		Map<String, Long> result = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, Phase> entry : phases.entrySet()) {
+			result.put(entry.getKey(), isAllocationAvailable() ? entry.getValue().allocatedBytes.get() : -1);
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, Long> getElements() {
+		Map<String, Long> result = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, Phase> entry : phases.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().elements.get());
+		}
+		return result;
+	}
+
+	/**
+	 * Phases that did not run are left out, e.g. fetch and read for a model
+	 * file, which is parsed straight from the file.
+	 */
+	@Override
+	public String getReport() {
+		StringBuilder result = new StringBuilder();
+		result.append("{\n  \"phases\": [");
+
+		String separator = "\n";
+		for (Map.Entry<String, Phase> entry : phases.entrySet()) {
+			Phase phase = entry.getValue();
+			if (phase.calls.get() == 0) {
+				continue;
+			}
+
+			result.append(separator)
+				.append("    { \"name\": \"").append(entry.getKey())
+				.append("\", \"calls\": ").append(phase.calls.get())
+				.append(", \"wallTimeMillis\": ").append(phase.nanos.get() / 1000000.0)
+				.append(", \"allocatedBytes\": ").append(isAllocationAvailable() ? phase.allocatedBytes.get() : -1)
+				.append(", \"elements\": ").append(phase.elements.get())
+				.append(" }");
+			separator = ",\n";
+		}
+
+		result.append("\n  ]\n}\n");
+		return result.toString();
+	}
+
+	/**
+	 * Logs one line for each phase that ran.
+	 */
+	public void logSummary() {
+		log.info("Vertabelo model phases  : wall time, " + (isAllocationAvailable() ? "allocated" : "allocation unavailable")
+				+ ", elements, calls");
+		for (Map.Entry<String, Phase> entry : phases.entrySet()) {
+			Phase phase = entry.getValue();
+			if (phase.calls.get() == 0) {
+				continue;
+			}
+
+			log.info(String.format("  %-13s %8d ms %12s %9d elements %7d calls", entry.getKey(),
+					phase.nanos.get() / 1000000,
+					isAllocationAvailable() ? (phase.allocatedBytes.get() >> 10) + " KB" : "-",
+					phase.elements.get(), phase.calls.get()));
+		}
+	}
+
+	/**
+	 * Writes the JSON report. Failures are logged, the report is not needed
+	 * to generate code.
+	 */
+	public void write(Path file) {
+		try {
+			Path directory = file.toAbsolutePath().getParent();
+			Files.createDirectories(directory);
+
+			Path tmp = Files.createTempFile(directory, "metrics", ".tmp");
+			try {
+				try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+					out.write(getReport());
+				}
+				Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tmp);
+			}
+		} catch (IOException e) {
+			log.warn("Cannot write metrics report: " + file, e);
+		}
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server, once.
+	 */
+	public synchronized void register() {
+		if (objectName != null) {
+			return;
+		}
+
+		try {
+			ObjectName name = new ObjectName("com.vertabelo.jooq:type=LoadMetrics,name=" + INSTANCES.incrementAndGet());
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+			objectName = name;
+		} catch (JMException e) {
+			log.warn("Cannot register metrics MBean", e);
+		}
+	}
+
+	public synchronized void unregister() {
+		if (objectName == null) {
+			return;
+		}
+
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(objectName)) {
+				server.unregisterMBean(objectName);
+			}
+		} catch (JMException e) {
+			log.warn("Cannot unregister metrics MBean", e);
+		}
+		objectName = null;
+	}
+
+	/**
+	 * A running phase, stopped on the thread that started it.
+	 */
+	public static final class Timer {
+
+		private final Phase phase;
+		private final long startNanos;
+		private final long startAllocatedBytes;
+
+		Timer(Phase phase) {
+			this.phase = phase;
+			this.startAllocatedBytes = allocatedBytes();
+			this.startNanos = System.nanoTime();
+		}
+
+		/**
+		 * @param elements number of elements the phase handled
+		 */
+		public void stop(long elements) {
+			phase.nanos.addAndGet(System.nanoTime() - startNanos);
+			long allocatedBytes = allocatedBytes();
+			if (startAllocatedBytes >= 0 && allocatedBytes >= 0) {
+				phase.allocatedBytes.addAndGet(allocatedBytes - startAllocatedBytes);
+			}
+			phase.elements.addAndGet(elements);
+			phase.calls.incrementAndGet();
+		}
+	}
+
+	private static final class Phase {
+
+		final AtomicLong calls = new AtomicLong();
+		final AtomicLong nanos = new AtomicLong();
+		final AtomicLong allocatedBytes = new AtomicLong();
+		final AtomicLong elements = new AtomicLong();
+	}
+}
@@ -0,0 +1,27 @@
+package com.vertabelo.jooq;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link LoadMetrics}. All maps are keyed by phase
+ * name.
+ */
+public interface LoadMetricsMXBean {
+
+	Map<String, Long> getCalls();
+
+	Map<String, Long> getWallTimeMillis();
+
+	/**
+	 * @return bytes allocated by the threads that ran the phases,
+	 *         <code>-1</code> if the JVM does not measure allocations
+	 */
+	Map<String, Long> getAllocatedBytes();
+
+	Map<String, Long> getElements();
+
+	/**
+	 * @return the metrics as a JSON object
+	 */
+	String getReport();
+}
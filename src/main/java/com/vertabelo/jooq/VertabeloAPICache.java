@@ -0,0 +1,210 @@
+package com.vertabelo.jooq;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+import org.jooq.tools.JooqLogger;
+import org.jooq.tools.StringUtils;
+
+/**
+ * Local cache of models fetched from the Vertabelo API.
+ *
+ * Every entry is a single file named after the model id and tag name, joined
+ * by <code>~</code>. URLEncoder always escapes <code>~</code>, so no two
+ * model id and tag name pairs share a file. The file holds a header with the
+ * HTTP validators (ETag and Last-Modified) of the response followed by the
+ * model XML. Replacing the file replaces both at once, a
+ * model is never paired with the validators of another response.
+ */
+public class VertabeloAPICache {
+
+	private static final JooqLogger log = JooqLogger.getLogger(VertabeloAPICache.class);
+
+	static final String ETAG = "ETag";
+	static final String LAST_MODIFIED = "Last-Modified";
+
+	private static final String LATEST_TAG = "latest";
+
+	// never part of an encoded model id or tag name
+	private static final String SEPARATOR = "~";
+
+	// header of an entry, changed whenever the layout of an entry changes
+	private static final int MAGIC = 0x56414331;
+
+	protected final Path directory;
+
+	public VertabeloAPICache(String directory) {
+		this.directory = Paths.get(directory);
+	}
+
+	/**
+	 * An entry of the cache.
+	 */
+	public class Entry {
+
+		private final Path file;
+		private final boolean immutable;
+
+		Entry(String modelId, String tagName) {
+			String key = encode(modelId) + SEPARATOR
+					+ (StringUtils.isEmpty(tagName) ? LATEST_TAG : "tag" + SEPARATOR + encode(tagName));
+
+			this.file = directory.resolve(key + ".model");
+			this.immutable = !StringUtils.isEmpty(tagName);
+		}
+
+		/**
+		 * @return <code>true</code> for tagged model versions, which never
+		 *         change once created
+		 */
+		public boolean isImmutable() {
+			return immutable;
+		}
+
+		public boolean exists() {
+			return Files.isRegularFile(file);
+		}
+
+		/**
+		 * @return the cached model XML, the caller must close it
+		 */
+		public InputStream openXML() {
+			DataInputStream in = null;
+			try {
+				in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+				readHeader(in);
+				return in;
+			} catch (IOException e) {
+				closeQuietly(in);
+				throw new RuntimeException("Error while reading cached model: " + file, e);
+			}
+		}
+
+		/**
+		 * Opens the cached model XML. An entry whose header cannot be read is
+		 * deleted, so the model is fetched again instead of failing every build.
+		 *
+		 * @return the cached model XML or <code>null</code> if the entry is
+		 *         unreadable, the caller must close it
+		 */
+		public InputStream openValidXML() {
+			DataInputStream in = null;
+			try {
+				in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+				readHeader(in);
+				return in;
+			} catch (IOException e) {
+				closeQuietly(in);
+				log.warn("Deleting unreadable cached model: " + file, e);
+				delete();
+				return null;
+			}
+		}
+
+		private void delete() {
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
+				log.warn("Cannot delete cached model: " + file, e);
+			}
+		}
+
+		/**
+		 * @return the validators of the cached model, empty if there is none
+		 *         or it cannot be read
+		 */
+		public Properties readValidators() {
+			if (!Files.isRegularFile(file)) {
+				return new Properties();
+			}
+
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+				return readHeader(in);
+			} catch (IOException e) {
+				log.warn("Ignoring unreadable cached model: " + file, e);
+				return new Properties();
+			}
+		}
+
+		/**
+		 * Stores a model together with the validators of the response it came
+		 * from. The entry is written aside and moved in place, so a concurrent
+		 * build never sees a partially written entry.
+		 */
+		public void write(InputStream xml, Properties validators) throws IOException {
+			Files.createDirectories(directory);
+
+			Path tmp = Files.createTempFile(directory, "model", ".tmp");
+			try {
+				try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+					out.writeInt(MAGIC);
+					out.writeInt(validators.size());
+					for (String name : validators.stringPropertyNames()) {
+						out.writeUTF(name);
+						out.writeUTF(validators.getProperty(name));
+					}
+
+					byte[] buffer = new byte[8192];
+					int read;
+					while ((read = xml.read(buffer)) != -1) {
+						out.write(buffer, 0, read);
+					}
+				}
+
+				Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tmp);
+			}
+		}
+
+		private Properties readHeader(DataInputStream in) throws IOException {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a cached model: " + file);
+			}
+
+			Properties validators = new Properties();
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				validators.setProperty(in.readUTF(), in.readUTF());
+			}
+			return validators;
+		}
+
+		@Override
+		public String toString() {
+			return file.toString();
+		}
+	}
+
+	public Entry entry(String modelId, String tagName) {
+		return new Entry(modelId, tagName);
+	}
+
+	private static void closeQuietly(InputStream in) {
+		if (in != null) {
+			try {
+				in.close();
+			} catch (IOException ignore) {
+			}
+		}
+	}
+
+	private static String encode(String value) {
+		try {
+			return URLEncoder.encode(value, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException("Impossible has happen.", e);
+		}
+	}
+}
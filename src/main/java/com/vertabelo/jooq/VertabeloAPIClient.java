@@ -1,12 +1,17 @@
 package com.vertabelo.jooq;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
 
-import javax.net.ssl.HttpsURLConnection;
 import javax.xml.bind.DatatypeConverter;
 
 import org.jooq.tools.JooqLogger;
@@ -24,10 +29,13 @@ public class VertabeloAPIClient {
 
 	protected static final String API_URL_PREFIX = "https://my.vertabelo.com/api/xml/";
 
+	private static final int BUFFER_SIZE = 64 * 1024;
+
 	protected String apiPrefix;
 	protected String apiToken;
 	protected String modelId;
 	protected String tagName;
+	protected VertabeloAPICache cache;
 	
 	public VertabeloAPIClient(String apiToken) {
 		super();
@@ -42,15 +50,93 @@ public class VertabeloAPIClient {
 		
 	}
 
+	/**
+	 * Enables caching of fetched models. Tagged model versions are served
+	 * from the cache without contacting the server, the latest version is
+	 * revalidated with a conditional request.
+	 *
+	 * @param cache cache of fetched models or <code>null</code>
+	 */
+	public void setCache(VertabeloAPICache cache) {
+		this.cache = cache;
+	}
+
 	/**
 	 * Fetches ERD as an XML from Vertabelo. 
 	 * 
 	 * @param modelId model identifier
 	 * @param tagName tag name or version identifier
-	 * @return model as Vertabelo XML
+	 * @return model as Vertabelo XML, decoded in the encoding the XML parser
+	 *         detects
 	 */
 	public String getXML(String modelId, String tagName) {
-		String xml = null;
+		return VertabeloModelLoader.decodeXML(getXMLBytes(modelId, tagName));
+	}
+
+	/**
+	 * Fetches ERD as an XML from Vertabelo, without decoding it.
+	 *
+	 * @param modelId model identifier
+	 * @param tagName tag name or version identifier
+	 * @return model as Vertabelo XML bytes
+	 */
+	public byte[] getXMLBytes(String modelId, String tagName) {
+		try (InputStream in = openXML(modelId, tagName)) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			return out.toByteArray();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Fetches ERD as an XML from Vertabelo into a file. The body is streamed
+	 * into the file, it is never held in memory as a whole.
+	 *
+	 * @param modelId model identifier
+	 * @param tagName tag name or version identifier
+	 * @param file file to write the model to, replaced if it exists
+	 */
+	public void downloadXML(String modelId, String tagName, Path file) {
+		try (InputStream in = openXML(modelId, tagName)) {
+			Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Opens a stream of the model XML. The response is requested gzip
+	 * compressed and decompressed on the fly. When a cache is set the body is
+	 * streamed into the cache first and read back from there.
+	 *
+	 * @param modelId model identifier
+	 * @param tagName tag name or version identifier
+	 * @return model as Vertabelo XML, the caller must close it
+	 */
+	public InputStream openXML(String modelId, String tagName) {
+		VertabeloAPICache.Entry cacheEntry = null;
+		Properties validators = new Properties();
+		if (cache != null) {
+			cacheEntry = cache.entry(modelId, tagName);
+
+			if (cacheEntry.exists()) {
+				if (cacheEntry.isImmutable()) {
+					InputStream cached = cacheEntry.openValidXML();
+					if (cached != null) {
+						log.info("Using cached model: " + cacheEntry);
+						return cached;
+					}
+				} else {
+					validators = cacheEntry.readValidators();
+				}
+			}
+		}
 
 		String apiUrl = getApiUrl(modelId,tagName);
 
@@ -59,43 +145,70 @@ public class VertabeloAPIClient {
 			log.info("Creating connection to Vertabelo server: " + apiUrl);
 
 			URL url = new URL(apiUrl);
-			HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
+			HttpURLConnection connection = (HttpURLConnection) url.openConnection();
 			connection.setConnectTimeout(5000);
 			connection.setReadTimeout(5000);
 
 			// authorization data
 			String encodedAuthData = DatatypeConverter.printBase64Binary((apiToken + ":").getBytes());
 			connection.addRequestProperty("Authorization", "Basic " + encodedAuthData);
+			connection.addRequestProperty("Accept-Encoding", "gzip");
+
+			// revalidate cached model
+			if (validators.getProperty(VertabeloAPICache.ETAG) != null) {
+				connection.addRequestProperty("If-None-Match", validators.getProperty(VertabeloAPICache.ETAG));
+			}
+			if (validators.getProperty(VertabeloAPICache.LAST_MODIFIED) != null) {
+				connection.addRequestProperty("If-Modified-Since", validators.getProperty(VertabeloAPICache.LAST_MODIFIED));
+			}
 
 			// do request
 			int responseCode = connection.getResponseCode();
 			log.info("Response code: " + responseCode);
 
-			if (responseCode != HttpsURLConnection.HTTP_OK) {
+			if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cacheEntry != null && cacheEntry.exists()) {
+				log.info("Model not modified, using cached model: " + cacheEntry);
+				connection.disconnect();
+				return cacheEntry.openXML();
+			}
+
+			if (responseCode != HttpURLConnection.HTTP_OK) {
+				connection.disconnect();
 				throw new RuntimeException("Request failed with status code: " + responseCode);
 			}
 
 			// read response
-			String response = "";
-			String line;
-			BufferedReader br = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-			while ((line = br.readLine()) != null) {
-				response += line;
+			InputStream body = connection.getInputStream();
+			if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+				body = new GZIPInputStream(body, BUFFER_SIZE);
 			}
 
-			xml = response;
+			if (cacheEntry == null) {
+				return body;
+			}
+
+			Properties responseValidators = new Properties();
+			if (connection.getHeaderField(VertabeloAPICache.ETAG) != null) {
+				responseValidators.setProperty(VertabeloAPICache.ETAG, connection.getHeaderField(VertabeloAPICache.ETAG));
+			}
+			if (connection.getHeaderField(VertabeloAPICache.LAST_MODIFIED) != null) {
+				responseValidators.setProperty(VertabeloAPICache.LAST_MODIFIED, connection.getHeaderField(VertabeloAPICache.LAST_MODIFIED));
+			}
+
+			try (InputStream in = body) {
+				cacheEntry.write(in, responseValidators);
+			}
+			return cacheEntry.openXML();
 
 		} catch (MalformedURLException e) {
 			throw new RuntimeException(e);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
-
-		return xml;
 	}
 
 	String getApiUrl(String modelId, String tagName) {
-		String apiUrl = API_URL_PREFIX + modelId;
+		String apiUrl = apiPrefix + modelId;
 		if (!StringUtils.isEmpty(tagName)) {
 			apiUrl += "/" + tagName;
 		}
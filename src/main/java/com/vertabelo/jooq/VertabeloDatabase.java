@@ -0,0 +1,100 @@
+package com.vertabelo.jooq;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.vertabelo.jooq.model.ModelDatabase;
+
+/**
+ * The Vertabelo XML Database of any supported XML version.
+ *
+ * The version is taken from the <code>VersionId</code> of the model as read
+ * by the loader, the model is then parsed by the database of that version.
+ * The model is read and parsed once, like with a database of a single
+ * version, which can still be configured instead.
+ */
+public class VertabeloDatabase extends AbstractVertabeloDatabase {
+
+	// database reading each supported XML version, 2.1 lacks only descriptions of keys and indexes
+	private static final Map<String, Class<? extends AbstractVertabeloDatabase>> DATABASE_CLASSES;
+
+	static {
+		Map<String, Class<? extends AbstractVertabeloDatabase>> databaseClasses = new LinkedHashMap<String, Class<? extends AbstractVertabeloDatabase>>();
+		databaseClasses.put("2.1", com.vertabelo.jooq.v2_2.VertabeloDatabase.class);
+		databaseClasses.put("2.2", com.vertabelo.jooq.v2_2.VertabeloDatabase.class);
+		databaseClasses.put("2.3", com.vertabelo.jooq.v2_3.VertabeloDatabase.class);
+		DATABASE_CLASSES = Collections.unmodifiableMap(databaseClasses);
+	}
+
+	// files of a model are parsed concurrently, possibly of different versions
+	private final ConcurrentMap<Class<?>, AbstractVertabeloDatabase> delegates = new ConcurrentHashMap<Class<?>, AbstractVertabeloDatabase>();
+
+	@Override
+	protected boolean isSupportedVersion(String version) {
+		return DATABASE_CLASSES.containsKey(version);
+	}
+
+	@Override
+	protected ModelDatabase readModel(VertabeloModelLoader loader) {
+		return delegate(loader.getVertabeloXMLVersion()).readModel(loader);
+	}
+
+	@Override
+	protected AbstractStAXModelReader createStAXModelReader(String version) {
+		return delegate(version).createStAXModelReader(version);
+	}
+
+	/**
+	 * Closes the databases of each version read, then this one.
+	 */
+	@Override
+	public void close() {
+		try {
+			for (AbstractVertabeloDatabase delegate : delegates.values()) {
+				delegate.close();
+			}
+			delegates.clear();
+		} finally {
+			super.close();
+		}
+	}
+
+	/**
+	 * @return the database of the given version, sharing the properties of
+	 *         this database
+	 */
+	private AbstractVertabeloDatabase delegate(String version) {
+		Class<? extends AbstractVertabeloDatabase> databaseClass = DATABASE_CLASSES.get(version);
+		if (databaseClass == null) {
+			throw new IllegalStateException("Unsupported Vertabelo XML version: " + version);
+		}
+
+		AbstractVertabeloDatabase result = delegates.get(databaseClass);
+		if (result == null) {
+			AbstractVertabeloDatabase created;
+			try {
+				created = databaseClass.getDeclaredConstructor().newInstance();
+			} catch (InvocationTargetException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				} else if (e.getCause() instanceof Error) {
+					throw (Error) e.getCause();
+				}
+				throw new IllegalStateException("Cannot create " + databaseClass.getName(), e.getCause());
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalStateException("Cannot create " + databaseClass.getName(), e);
+			}
+			created.setProperties(getProperties());
+
+			result = delegates.putIfAbsent(databaseClass, created);
+			if (result == null) {
+				result = created;
+			}
+		}
+		return result;
+	}
+}
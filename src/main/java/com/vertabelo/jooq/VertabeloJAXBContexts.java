@@ -0,0 +1,139 @@
+package com.vertabelo.jooq;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.Source;
+
+import org.jooq.tools.JooqLogger;
+
+/**
+ * Process wide registry of JAXB contexts for the supported Vertabelo XML
+ * versions.
+ *
+ * Creating a JAXBContext means reflecting over the whole generated model
+ * package, so each context is created once per class loader and shared by all
+ * code generator runs. Unmarshallers are cheap to create and are not reused: an
+ * unmarshaller keeps the IDs of its last document, and with them the whole
+ * unmarshalled model, until it reads the next one.
+ */
+public final class VertabeloJAXBContexts {
+
+	private static final JooqLogger log = JooqLogger.getLogger(VertabeloJAXBContexts.class);
+
+	// model root class for each supported XML version
+	private static final Map<String, Class<?>> MODEL_CLASSES;
+
+	static {
+		Map<String, Class<?>> modelClasses = new HashMap<String, Class<?>>();
+		modelClasses.put("2.1", com.vertabelo.jooq.jaxb.v2_2.DatabaseModel.class);
+		modelClasses.put("2.2", com.vertabelo.jooq.jaxb.v2_2.DatabaseModel.class);
+		modelClasses.put("2.3", com.vertabelo.jooq.jaxb.v2_3.DatabaseModel.class);
+		MODEL_CLASSES = Collections.unmodifiableMap(modelClasses);
+	}
+
+	private static final ConcurrentMap<Class<?>, JAXBContext> CONTEXTS = new ConcurrentHashMap<Class<?>, JAXBContext>();
+
+	private VertabeloJAXBContexts() {
+	}
+
+	/**
+	 * Unmarshals a model using a new unmarshaller of the given version.
+	 *
+	 * @param version Vertabelo XML version
+	 * @param source model XML
+	 * @param type model root class
+	 * @return unmarshalled model
+	 */
+	public static <T> T unmarshal(String version, Source source, Class<T> type) {
+		try {
+			Unmarshaller unmarshaller = sharedContext(version).createUnmarshaller();
+			return unmarshaller.unmarshal(source, type).getValue();
+		} catch (JAXBException e) {
+			throw new RuntimeException("Error while unmarshalling Vertabelo XML version " + version, e);
+		}
+	}
+
+	/**
+	 * Unmarshals a model using a new unmarshaller of the given version,
+	 * optionally without the diagram layout sections. Skipped sections are
+	 * never turned into objects.
+	 *
+	 * @param version Vertabelo XML version
+	 * @param source model XML, a stream source
+	 * @param type model root class
+	 * @param skipDiagram <code>true</code> to skip the diagram layout
+	 * @return unmarshalled model
+	 */
+	public static <T> T unmarshal(String version, Source source, Class<T> type, boolean skipDiagram) {
+		if (!skipDiagram) {
+			return unmarshal(version, source, type);
+		}
+
+		XMLStreamReader reader = null;
+		try {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+			DiagramSkippingReader skipping = new DiagramSkippingReader(factory.createXMLStreamReader(source));
+			reader = skipping;
+
+			Unmarshaller unmarshaller = sharedContext(version).createUnmarshaller();
+			T result = unmarshaller.unmarshal(reader, type).getValue();
+			skipping.logSummary();
+			return result;
+		} catch (XMLStreamException | JAXBException e) {
+			throw new RuntimeException("Error while unmarshalling Vertabelo XML version " + version, e);
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (XMLStreamException ignore) {
+				}
+			}
+		}
+	}
+
+	private static JAXBContext sharedContext(String version) {
+		Class<?> modelClass = MODEL_CLASSES.get(version);
+		if (modelClass == null) {
+			throw new IllegalStateException("Unsupported Vertabelo XML version: " + version);
+		}
+
+		JAXBContext context = CONTEXTS.get(modelClass);
+		if (context == null) {
+			// concurrent callers may both create a context, only one is kept
+			JAXBContext created = createContext(modelClass);
+			context = CONTEXTS.putIfAbsent(modelClass, created);
+			if (context == null) {
+				context = created;
+			}
+		}
+
+		return context;
+	}
+
+	private static JAXBContext createContext(Class<?> modelClass) {
+		long start = System.nanoTime();
+
+		JAXBContext context;
+		try {
+			context = JAXBContext.newInstance(modelClass);
+		} catch (JAXBException e) {
+			throw new RuntimeException("Cannot create JAXB context for " + modelClass.getName(), e);
+		}
+		log.info("Created JAXB context for " + modelClass.getPackage().getName() + " in "
+				+ (System.nanoTime() - start) / 1000000 + "ms");
+
+		return context;
+	}
+}
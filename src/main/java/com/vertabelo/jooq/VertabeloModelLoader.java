@@ -1,15 +1,44 @@
 package com.vertabelo.jooq;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
 
 import org.jooq.tools.JooqLogger;
 import org.jooq.tools.StringUtils;
@@ -34,23 +63,124 @@ public class VertabeloModelLoader {
 	protected static final String API_TOKEN_PARAM = "api-token";
 	protected static final String MODEL_ID_PARAM = "model-id";
 	protected static final String TAG_NAME_PARAM = "tag-name";
+	protected static final String API_CACHE_DIR_PARAM = "api-cache-dir";
+	protected static final String VERSION_DETECTION_PARAM = "version-detection";
+
+	// values of the version detection parameter
+	protected static final String VERSION_DETECTION_STAX = "stax";
+	protected static final String VERSION_DETECTION_DOM = "dom";
+
+	private static final String ROOT_ELEMENT_NAME = "DatabaseModel";
+	private static final String VERSION_ATTRIBUTE_NAME = "VersionId";
 
 	protected Properties properties;
-	
+
+	// model files, resolved on first use
+	private List<Path> xmlFiles;
+
+	// model as read or the file it is parsed from, encoding is declared in the XML prolog
+	private byte[] vertabeloXMLBytes;
+	private Path vertabeloXMLFile;
+	private String vertabeloXMLEncoding;
+
+	// model as set by subclasses or decoded on demand
 	private String vertabeloXML;
 	private String vertabeloXMLVersion;
 
+	private LoadMetrics metrics = new LoadMetrics();
+
 	public VertabeloModelLoader(Properties properties) {
 		this.properties = properties;
 	}
 
+	/**
+	 * @param metrics metrics to record reading and version detection in
+	 */
+	public void setMetrics(LoadMetrics metrics) {
+		this.metrics = metrics;
+	}
+
 	/**
 	 * @return the vertabeloXML
 	 */
 	public String getVertabeloXML() {
+		if (vertabeloXML == null && (vertabeloXMLBytes != null || vertabeloXMLFile != null)) {
+			Charset charset = vertabeloXMLEncoding != null ? Charset.forName(vertabeloXMLEncoding) : StandardCharsets.UTF_8;
+			vertabeloXML = new String(getVertabeloXMLBytes(), charset);
+		}
 		return vertabeloXML;
 	}
 
+	/**
+	 * Returns the model as a source for an XML parser. Models read from the
+	 * API are passed on as bytes and model files are parsed straight from the
+	 * file, so the parser takes the encoding from the XML prolog and the
+	 * document is never copied into a String. The caller closes the stream
+	 * of the source.
+	 *
+	 * @return a new source of the model XML
+	 */
+	public Source getVertabeloXMLSource() {
+		if (vertabeloXMLFile != null) {
+			try {
+				return new StreamSource(openXMLStream(), vertabeloXMLFile.toUri().toString());
+			} catch (IOException e) {
+				throw new RuntimeException("Error while reading file: " + vertabeloXMLFile, e);
+			}
+		}
+		if (vertabeloXMLBytes != null) {
+			return new StreamSource(new ByteArrayInputStream(vertabeloXMLBytes));
+		}
+		return new StreamSource(new StringReader(vertabeloXML));
+	}
+
+	/**
+	 * @return the model XML as read or, for models set as a String, encoded
+	 *         in UTF-8. A model file is read again on each call.
+	 */
+	public byte[] getVertabeloXMLBytes() {
+		if (vertabeloXMLFile != null) {
+			try {
+				return readBytes(vertabeloXMLFile);
+			} catch (IOException e) {
+				throw new RuntimeException("Error while reading file: " + vertabeloXMLFile, e);
+			}
+		}
+		if (vertabeloXMLBytes != null) {
+			return vertabeloXMLBytes;
+		}
+		return vertabeloXML != null ? vertabeloXML.getBytes(StandardCharsets.UTF_8) : null;
+	}
+
+	/**
+	 * @return size of the model XML in bytes, as {@link #getVertabeloXMLBytes()}
+	 *         returns it
+	 */
+	public long getVertabeloXMLSize() {
+		if (vertabeloXMLFile != null) {
+			try {
+				return Files.size(vertabeloXMLFile);
+			} catch (IOException e) {
+				throw new RuntimeException("Error while reading file: " + vertabeloXMLFile, e);
+			}
+		}
+		byte[] xml = getVertabeloXMLBytes();
+		return xml != null ? xml.length : 0;
+	}
+
+	/**
+	 * Closes the stream of a source returned by
+	 * {@link #getVertabeloXMLSource()}.
+	 */
+	public static void close(Source source) {
+		if (source instanceof StreamSource && ((StreamSource) source).getInputStream() != null) {
+			try {
+				((StreamSource) source).getInputStream().close();
+			} catch (IOException ignore) {
+			}
+		}
+	}
+
 	/**
 	 * @return the vertabeloXMLVersion
 	 */
@@ -58,44 +188,269 @@ public class VertabeloModelLoader {
 		return vertabeloXMLVersion;
 	}
 
+	/**
+	 * Returns a key identifying the model without reading it. Files are
+	 * identified by their canonical path, size and modification time, API
+	 * models by model id and tag name. The latest version of an API model
+	 * can change at any time, it has no key. Neither has a model of several
+	 * files, each of them has its own.
+	 *
+	 * @return the model key or <code>null</code> if the model cannot be
+	 *         identified before it is read
+	 */
+	public String getModelKey() {
+		List<Path> xmlFiles = getXMLFiles();
+		String modelId = properties.getProperty(MODEL_ID_PARAM);
+		String tagName = properties.getProperty(TAG_NAME_PARAM);
+		if (xmlFiles.size() == 1) {
+			try {
+				Path path = xmlFiles.get(0).toRealPath();
+				BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+				return "file:" + path + ":" + attributes.size() + ":" + attributes.lastModifiedTime().toMillis();
+			} catch (IOException e) {
+				// reported when the file is read
+				return null;
+			}
+		} else if (xmlFiles.isEmpty() && !StringUtils.isEmpty(modelId) && !StringUtils.isEmpty(tagName)) {
+			return "api:" + modelId + ":" + tagName;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the model files to read. The file property holds one path or
+	 * several separated by commas, each of them may be a glob pattern like
+	 * <code>models/*.xml</code>. Files matching a pattern are sorted by path,
+	 * a file matched twice is read once.
+	 *
+	 * @return the model files in the given order, empty if the model is read
+	 *         from the API
+	 */
+	public List<Path> getXMLFiles() {
+		if (xmlFiles != null) {
+			return xmlFiles;
+		}
+
+		String xmlFileName = getXMLFileName();
+		if (xmlFileName == null) {
+			xmlFiles = Collections.emptyList();
+			return xmlFiles;
+		}
+
+		List<Path> result = new ArrayList<Path>();
+		Set<Path> files = new HashSet<Path>();
+		for (String entry : xmlFileName.split(",")) {
+			String fileName = entry.trim();
+			if (fileName.isEmpty()) {
+				continue;
+			}
+
+			List<Path> paths;
+			if (globIndex(fileName) >= 0) {
+				paths = findXMLFiles(fileName);
+				if (paths.isEmpty()) {
+					throw new IllegalStateException("No model file matches: " + fileName);
+				}
+			} else {
+				paths = Collections.singletonList(Paths.get(fileName));
+			}
+
+			for (Path path : paths) {
+				if (files.add(path.toAbsolutePath().normalize())) {
+					result.add(path);
+				}
+			}
+		}
+
+		xmlFiles = Collections.unmodifiableList(result);
+		return xmlFiles;
+	}
+
+	private static int globIndex(String fileName) {
+		for (int i = 0; i < fileName.length(); i++) {
+			if ("*?[{".indexOf(fileName.charAt(i)) >= 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Lists the files matching a glob pattern, starting from the directory
+	 * before its first glob character.
+	 */
+	private static List<Path> findXMLFiles(String pattern) {
+		int globIndex = globIndex(pattern);
+		int directoryEnd = Math.max(pattern.lastIndexOf('/', globIndex),
+				pattern.lastIndexOf(File.separatorChar, globIndex));
+		final Path directory = Paths.get(directoryEnd >= 0 ? pattern.substring(0, directoryEnd + 1) : ".");
+		String filePattern = pattern.substring(directoryEnd + 1);
+
+		final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + filePattern);
+		int depth = filePattern.contains("**") ? Integer.MAX_VALUE : filePattern.split("[/\\\\]").length;
+
+		final List<Path> result = new ArrayList<Path>();
+		try {
+			Files.walkFileTree(directory, EnumSet.noneOf(FileVisitOption.class), depth, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+					if (attributes.isRegularFile() && matcher.matches(directory.relativize(file))) {
+						result.add(file.normalize());
+					}
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			throw new RuntimeException("Error while listing model files: " + pattern, e);
+		}
+
+		Collections.sort(result);
+		return result;
+	}
+
+	/**
+	 * Returns a loader of one of the model files, recording in the same
+	 * metrics as this loader.
+	 */
+	public VertabeloModelLoader forFile(Path xmlFile) {
+		Properties fileProperties = new Properties();
+		for (String name : properties.stringPropertyNames()) {
+			fileProperties.setProperty(name, properties.getProperty(name));
+		}
+		fileProperties.remove("xmlFiles");
+		fileProperties.remove("xmlFile");
+		fileProperties.setProperty("xml-file", xmlFile.toString());
+
+		VertabeloModelLoader result = new VertabeloModelLoader(fileProperties);
+		result.setMetrics(metrics);
+		return result;
+	}
+
 	public void readXML() {
-		String xml;
-		String xmlFileName = properties.getProperty("xmlFiles",
-            properties.getProperty("xmlFile",
-                properties.getProperty("xml-file")
-            )
-        );
+		List<Path> xmlFiles = getXMLFiles();
 		String apiToken = properties.getProperty(API_TOKEN_PARAM);
 		String modelId = properties.getProperty(MODEL_ID_PARAM);
 		String tagName = properties.getProperty(TAG_NAME_PARAM);
-		if(xmlFileName != null) {
-			xml = readFileXML(xmlFileName);
+		if (xmlFiles.size() > 1) {
+			throw new IllegalStateException("The model consists of " + xmlFiles.size() + " files, each is read by its own loader.");
+		} else if(!xmlFiles.isEmpty()) {
+			String fileName = xmlFiles.get(0).toString();
+			if (overrides("readFileXML", String.class)) {
+				setVertabeloXML(readFileXML(fileName));
+				return;
+			}
+			if (!overrides("readFileXMLBytes", String.class)) {
+				// parsed as it is read, the whole file is never held in memory
+				setVertabeloXMLFile(xmlFiles.get(0));
+				return;
+			}
+
+			LoadMetrics.Timer timer = metrics.start(LoadMetrics.READ);
+			byte[] xml = null;
+			try {
+				xml = readFileXMLBytes(fileName);
+			} finally {
+				timer.stop(xml != null ? xml.length : 0);
+			}
+
+			setVertabeloXML(xml);
 		} else if(apiToken != null && modelId != null) {
-			xml = readAPIXML(apiToken, modelId, tagName);
+			if (overrides("readAPIXML", String.class, String.class, String.class)) {
+				setVertabeloXML(readAPIXML(apiToken, modelId, tagName));
+				return;
+			}
+
+			LoadMetrics.Timer timer = metrics.start(LoadMetrics.FETCH);
+			byte[] xml = null;
+			try {
+				xml = readAPIXMLBytes(apiToken, modelId, tagName);
+			} finally {
+				timer.stop(xml != null ? xml.length : 0);
+			}
+
+			setVertabeloXML(xml);
 		} else {
 			throw new IllegalStateException("Either ['xmlFiles,xmlFile,xml-file'] or ['" + API_TOKEN_PARAM + "' and '"+ MODEL_ID_PARAM +"'] parameters must be specified.");			
 		}
-		setVertabeloXML(xml);
 	}
 
+	private String getXMLFileName() {
+		return properties.getProperty("xmlFiles",
+            properties.getProperty("xmlFile",
+                properties.getProperty("xml-file")
+            )
+        );
+	}
+
+	/**
+	 * Tells whether a subclass overrides a method of this class, so that
+	 * reading still goes through the String methods such subclasses replace.
+	 */
+	private boolean overrides(String methodName, Class<?>... parameterTypes) {
+		for (Class<?> type = getClass(); type != VertabeloModelLoader.class; type = type.getSuperclass()) {
+			try {
+				type.getDeclaredMethod(methodName, parameterTypes);
+				return true;
+			} catch (NoSuchMethodException e) {
+				// look further up
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @deprecated Use {@link #readFileXMLBytes(String)}, the XML parser
+	 *             decodes the bytes based on the XML prolog.
+	 */
+	@Deprecated
 	protected String readFileXML(String fileName) {
+		return decodeXML(readFileXMLBytes(fileName));
+	}
+
+	/**
+	 * Reads the raw bytes of a model file. No charset decoding happens here,
+	 * the XML parser does it based on the XML prolog.
+	 */
+	protected byte[] readFileXMLBytes(String fileName) {
 		try {
-			File file = new File(fileName);
-			StringBuilder xml = new StringBuilder((int)file.length());
-			try (BufferedReader fr = new BufferedReader(new FileReader(file))) {
-				String line;
-				while ((line = fr.readLine()) != null) {
-					xml.append(line);
-				}
-				
-			}
-			return xml.toString();
+			return readBytes(Paths.get(fileName));
 		} catch (IOException e) {
 			throw new RuntimeException("Error while reading file: " + fileName, e);
 		}
 	}
 
+	private static byte[] readBytes(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("File too large: " + size + " bytes");
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					throw new EOFException("File truncated while reading, " + buffer.remaining() + " bytes missing");
+				}
+			}
+			return buffer.array();
+		}
+	}
+
+	/**
+	 * @deprecated Use {@link #readAPIXMLBytes(String, String, String)}, the
+	 *             XML parser decodes the bytes based on the XML prolog.
+	 */
+	@Deprecated
 	protected String readAPIXML(String apiToken, String modelId, String tagName) {
+		return decodeXML(readAPIXMLBytes(apiToken, modelId, tagName));
+	}
+
+	/**
+	 * Fetches the raw bytes of a model from the API. The response is streamed
+	 * into a temporary file and read from there in one piece, no growing
+	 * buffer holds copies of it on the way.
+	 */
+	protected byte[] readAPIXMLBytes(String apiToken, String modelId, String tagName) {
 		if (StringUtils.isEmpty(apiToken)) {
 			throw new IllegalStateException("Missing \"" + API_TOKEN_PARAM + "\" parameter.");
 		}
@@ -105,32 +460,202 @@ public class VertabeloModelLoader {
 		}
 
 		VertabeloAPIClient client = new VertabeloAPIClient(apiToken);
-		
-		return client.getXML(modelId, tagName);
+
+		String cacheDir = properties.getProperty(API_CACHE_DIR_PARAM);
+		if (!StringUtils.isEmpty(cacheDir)) {
+			client.setCache(new VertabeloAPICache(cacheDir));
+		}
+
+		Path file = null;
+		try {
+			file = Files.createTempFile("vertabelo-model", ".xml");
+			client.downloadXML(modelId, tagName, file);
+			return readBytes(file);
+		} catch (IOException e) {
+			throw new RuntimeException("Error while reading model: " + modelId, e);
+		} finally {
+			if (file != null) {
+				try {
+					Files.deleteIfExists(file);
+				} catch (IOException e) {
+					log.warn("Cannot delete temporary model file: " + file, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Decodes a model in the encoding the XML parser detects from its byte
+	 * order mark and XML prolog, UTF-8 if there is neither.
+	 */
+	static String decodeXML(byte[] xml) {
+		String encoding = null;
+		XMLStreamReader reader = null;
+		try {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+			reader = factory.createXMLStreamReader(new ByteArrayInputStream(xml));
+			encoding = reader.getEncoding();
+		} catch (XMLStreamException e) {
+			throw new RuntimeException("Error while parsing Vertabelo XML file.", e);
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (XMLStreamException ignore) {
+				}
+			}
+		}
+
+		return new String(xml, encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8);
 	}
 
 	protected void setVertabeloXML(String xml) {
 		vertabeloXML = xml;
+		vertabeloXMLBytes = null;
+		vertabeloXMLFile = null;
+		vertabeloXMLEncoding = null;
 
-		vertabeloXMLVersion = this.parseVersion(xml);
+		LoadMetrics.Timer timer = metrics.start(LoadMetrics.VERSION);
+		try {
+			vertabeloXMLVersion = this.parseVersion();
+		} finally {
+			timer.stop(1);
+		}
 	
 		log.info("Detected Vertabelo XML version: ", vertabeloXMLVersion);
 	}
 
-	private String parseVersion(String xml) {
+	protected void setVertabeloXML(byte[] xml) {
+		vertabeloXML = null;
+		vertabeloXMLBytes = xml;
+		vertabeloXMLFile = null;
+		vertabeloXMLEncoding = null;
+
+		LoadMetrics.Timer timer = metrics.start(LoadMetrics.VERSION);
+		try {
+			vertabeloXMLVersion = this.parseVersion();
+		} finally {
+			timer.stop(1);
+		}
+
+		log.info("Detected Vertabelo XML version: ", vertabeloXMLVersion);
+	}
+
+	private void setVertabeloXMLFile(Path file) {
+		vertabeloXML = null;
+		vertabeloXMLBytes = null;
+		vertabeloXMLFile = file;
+		vertabeloXMLEncoding = null;
+
+		LoadMetrics.Timer timer = metrics.start(LoadMetrics.VERSION);
+		try {
+			vertabeloXMLVersion = this.parseVersion();
+		} finally {
+			timer.stop(1);
+		}
+
+		log.info("Detected Vertabelo XML version: ", vertabeloXMLVersion);
+	}
+
+	/**
+	 * @return a stream of the model file or bytes, <code>null</code> for a
+	 *         model set as a String
+	 */
+	private InputStream openXMLStream() throws IOException {
+		if (vertabeloXMLFile != null) {
+			// closed when garbage collected if a caller forgets to
+			return new BufferedInputStream(new FileInputStream(vertabeloXMLFile.toFile()));
+		}
+		return vertabeloXMLBytes != null ? new ByteArrayInputStream(vertabeloXMLBytes) : null;
+	}
+
+	private String parseVersion() {
+		String detection = properties.getProperty(VERSION_DETECTION_PARAM, VERSION_DETECTION_STAX);
+
+		if (VERSION_DETECTION_DOM.equalsIgnoreCase(detection)) {
+			return parseVersionDOM();
+		} else if (VERSION_DETECTION_STAX.equalsIgnoreCase(detection)) {
+			return parseVersionStAX();
+		}
+
+		throw new IllegalStateException("Unknown \"" + VERSION_DETECTION_PARAM + "\" value: " + detection);
+	}
+
+	/**
+	 * Reads the version from the root element only. The rest of the document
+	 * is left unparsed, it is unmarshalled later anyway.
+	 */
+	private String parseVersionStAX() {
+		InputStream in = null;
+		XMLStreamReader reader = null;
 
 		try {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+			in = openXMLStream();
+			if (in != null) {
+				reader = factory.createXMLStreamReader(in);
+			} else {
+				reader = factory.createXMLStreamReader(new StringReader(vertabeloXML));
+			}
+
+			while (reader.hasNext()) {
+				if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+					if (!ROOT_ELEMENT_NAME.equals(reader.getLocalName())) {
+						throw new RuntimeException("Unexpected root element in Vertabelo XML file: " + reader.getLocalName());
+					}
+
+					vertabeloXMLEncoding = reader.getEncoding();
+					return reader.getAttributeValue(null, VERSION_ATTRIBUTE_NAME);
+				}
+			}
+
+			throw new RuntimeException("Missing " + ROOT_ELEMENT_NAME + " element in Vertabelo XML file.");
+
+		} catch (XMLStreamException e) {
+			throw new RuntimeException("Error while parsing Vertabelo XML file.", e);
+		} catch (IOException e) {
+			throw new RuntimeException("Error while reading file: " + vertabeloXMLFile, e);
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (XMLStreamException ignore) {
+				}
+			}
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException ignore) {
+				}
+			}
+		}
+	}
+
+	private String parseVersionDOM() {
+
+		try (InputStream in = openXMLStream()) {
 			DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
 			DocumentBuilder dbBuilder = dbFactory.newDocumentBuilder();
 			InputSource is = new InputSource();
-			is.setCharacterStream(new StringReader(xml));
+			if (in != null) {
+				is.setByteStream(in);
+			} else {
+				is.setCharacterStream(new StringReader(vertabeloXML));
+			}
 			
 			Document doc = dbBuilder.parse(is);
-				        Node root = doc.getElementsByTagName("DatabaseModel").item(0);
+			vertabeloXMLEncoding = doc.getInputEncoding();
+			Node root = doc.getElementsByTagName(ROOT_ELEMENT_NAME).item(0);
+
+			Node attr = root.getAttributes().getNamedItem(VERSION_ATTRIBUTE_NAME);
+			return attr.getNodeValue();
 
-	        Node attr = root.getAttributes().getNamedItem("VersionId");
-	        return attr.getNodeValue();
-	        
 		} catch (ParserConfigurationException | SAXException | IOException e) {
 			throw new RuntimeException("Error while parsing Vertabelo XML file.",e);
 		}
@@ -0,0 +1,151 @@
+package com.vertabelo.jooq;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jooq.meta.AbstractTableDefinition;
+import org.jooq.meta.ColumnDefinition;
+import org.jooq.meta.DataTypeDefinition;
+import org.jooq.meta.DefaultColumnDefinition;
+import org.jooq.meta.SchemaDefinition;
+import org.jooq.tools.StringUtils;
+
+import com.vertabelo.jooq.model.ModelColumn;
+import com.vertabelo.jooq.model.ModelTable;
+import com.vertabelo.jooq.model.ModelView;
+import com.vertabelo.jooq.model.ModelViewColumn;
+
+/**
+ * Definition of a table or view of a Vertabelo model, independent of the XML
+ * version it was read from.
+ */
+public class VertabeloTableDefinition extends AbstractTableDefinition {
+
+	protected ModelTable table;
+	protected ModelView view;
+
+	// column types resolved ahead of the columns, see resolveColumnTypes()
+	private List<DataTypeDefinition> columnTypes;
+
+	public VertabeloTableDefinition(SchemaDefinition schema, ModelTable table) {
+		super(schema, table.getName(), "");
+
+		this.table = table;
+	}
+
+	public VertabeloTableDefinition(SchemaDefinition schema, ModelView view) {
+		super(schema, view.getName(), "");
+
+		this.view = view;
+	}
+
+	@Override
+	protected List<ColumnDefinition> getElements0() throws SQLException {
+		AbstractVertabeloDatabase database = (AbstractVertabeloDatabase) getDatabase();
+
+		LoadMetrics.Timer timer = database.getMetrics().start(LoadMetrics.COLUMNS);
+		List<ColumnDefinition> result = Collections.emptyList();
+		try {
+			if (table != null) {
+				// table
+				result = getTableElements();
+
+			} else {
+				// view
+				result = getViewElements();
+			}
+
+			return result;
+		} catch (RuntimeException | Error e) {
+			database.failed();
+			throw e;
+		} finally {
+			timer.stop(result.size());
+		}
+	}
+
+	/**
+	 * Resolves the types of all columns ahead of the columns. Only the data
+	 * type cache of the database is used, so the types of many tables can be
+	 * resolved concurrently. The columns are built later, on the thread
+	 * asking for them.
+	 */
+	void resolveColumnTypes(DataTypeCache dataTypes) {
+		columnTypes = table != null ? getTableTypes(dataTypes) : getViewTypes(dataTypes);
+	}
+
+	private List<DataTypeDefinition> getTableTypes(DataTypeCache dataTypes) {
+		List<DataTypeDefinition> result = new ArrayList<DataTypeDefinition>(table.getColumns().size());
+
+		for (ModelColumn column : table.getColumns()) {
+			// convert data type
+			result.add(dataTypes.getDataType(getSchema(), column.getType(), column.isNullable(),
+				!StringUtils.isEmpty(column.getDefaultValue()), true));
+		}
+
+		return result;
+	}
+
+	private List<DataTypeDefinition> getViewTypes(DataTypeCache dataTypes) {
+		List<DataTypeDefinition> result = new ArrayList<DataTypeDefinition>(view.getColumns().size());
+
+		for (ModelViewColumn column : view.getColumns()) {
+			// convert data type
+			result.add(dataTypes.getDataType(getSchema(), column.getType(), true, false, false));
+		}
+
+		return result;
+	}
+
+	protected List<ColumnDefinition> getTableElements() {
+		List<ColumnDefinition> result = new ArrayList<ColumnDefinition>();
+
+		List<DataTypeDefinition> types = columnTypes != null ? columnTypes
+				: getTableTypes(((AbstractVertabeloDatabase) getDatabase()).getDataTypeCache());
+
+		int position = 0;
+		for (ModelColumn column : table.getColumns()) {
+			DataTypeDefinition type = types.get(position);
+			++position;
+
+			ColumnDefinition columnDefinition = new DefaultColumnDefinition(
+				this,
+				column.getName(),
+				position,
+				type,
+				false,
+				column.getDescription());
+
+			result.add(columnDefinition);
+		}
+
+		return result;
+	}
+
+	protected List<ColumnDefinition> getViewElements() {
+		List<ColumnDefinition> result = new ArrayList<ColumnDefinition>();
+
+		List<DataTypeDefinition> types = columnTypes != null ? columnTypes
+				: getViewTypes(((AbstractVertabeloDatabase) getDatabase()).getDataTypeCache());
+
+		int position = 0;
+		for (ModelViewColumn column : view.getColumns()) {
+			DataTypeDefinition type = types.get(position);
+			++position;
+
+			ColumnDefinition columnDefinition = new DefaultColumnDefinition(
+				this,
+				column.getName(),
+				position,
+				type,
+				false,
+				column.getDescription());
+
+			result.add(columnDefinition);
+		}
+
+		return result;
+	}
+}
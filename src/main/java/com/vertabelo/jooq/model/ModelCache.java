@@ -0,0 +1,98 @@
+package com.vertabelo.jooq.model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jooq.tools.JooqLogger;
+
+/**
+ * Process wide cache of parsed models, shared by all code generator runs in
+ * the same class loader, e.g. several executions of the Maven plugin in one
+ * reactor build.
+ *
+ * Models are immutable, so a cached model is handed out as is. The cache is
+ * bounded by the total {@link ModelFootprint} of the cached models, least
+ * recently used models are evicted first. The bound is set in bytes of heap
+ * with the <code>com.vertabelo.jooq.model.ModelCache.maxSize</code> system
+ * property, <code>0</code> disables the cache. A model larger than the bound
+ * is never cached and read again by every run.
+ */
+public final class ModelCache {
+
+	private static final JooqLogger log = JooqLogger.getLogger(ModelCache.class);
+
+	private static final long MAX_SIZE = Long.getLong(ModelCache.class.getName() + ".maxSize", 64L * 1024 * 1024);
+
+	private static final Map<String, Entry> ENTRIES = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+	private static long size;
+
+	private ModelCache() {
+	}
+
+	/**
+	 * @param key model key
+	 * @return the cached model or <code>null</code>
+	 */
+	public static synchronized ModelDatabase get(String key) {
+		Entry entry = ENTRIES.get(key);
+		return entry != null ? entry.model : null;
+	}
+
+	/**
+	 * Caches a model unless its estimated heap usage exceeds the bound.
+	 *
+	 * @param key model key
+	 * @param model model to cache
+	 */
+	public static void put(String key, ModelDatabase model) {
+		if (MAX_SIZE <= 0) {
+			return;
+		}
+
+		// estimated outside the lock, it walks the whole model
+		long modelSize = ModelFootprint.of(model).getEstimatedBytes();
+		if (modelSize > MAX_SIZE) {
+			log.info("Model too large to cache: " + key + ", " + modelSize + " bytes");
+			return;
+		}
+
+		put(key, model, modelSize);
+	}
+
+	private static synchronized void put(String key, ModelDatabase model, long modelSize) {
+		Entry previous = ENTRIES.put(key, new Entry(model, modelSize));
+		if (previous != null) {
+			size -= previous.size;
+		}
+		size += modelSize;
+
+		Iterator<Map.Entry<String, Entry>> iterator = ENTRIES.entrySet().iterator();
+		while (size > MAX_SIZE && iterator.hasNext()) {
+			Map.Entry<String, Entry> eldest = iterator.next();
+			size -= eldest.getValue().size;
+			iterator.remove();
+			log.debug("Evicted cached model: " + eldest.getKey());
+		}
+	}
+
+	/**
+	 * Removes all cached models.
+	 */
+	public static synchronized void clear() {
+		ENTRIES.clear();
+		size = 0;
+	}
+
+	private static final class Entry {
+
+		final ModelDatabase model;
+		final long size;
+
+		Entry(ModelDatabase model, long size) {
+			this.model = model;
+			this.size = size;
+		}
+	}
+}
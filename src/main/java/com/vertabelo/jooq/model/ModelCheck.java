@@ -0,0 +1,21 @@
+package com.vertabelo.jooq.model;
+
+import java.util.List;
+
+/**
+ * A table check constraint.
+ */
+public final class ModelCheck extends ModelElement {
+
+	private final String checkExpression;
+
+	public ModelCheck(String id, String name, String checkExpression, List<ModelProperty> properties) {
+		super(id, name, properties);
+
+		this.checkExpression = checkExpression;
+	}
+
+	public String getCheckExpression() {
+		return checkExpression;
+	}
+}
@@ -0,0 +1,46 @@
+package com.vertabelo.jooq.model;
+
+import java.util.List;
+
+/**
+ * A table column.
+ */
+public final class ModelColumn extends ModelElement {
+
+	private final String type;
+	private final String description;
+	private final boolean nullable;
+	private final String defaultValue;
+	private final String checkExpression;
+
+	public ModelColumn(String id, String name, String type, String description, boolean nullable,
+			String defaultValue, String checkExpression, List<ModelProperty> properties) {
+		super(id, name, properties);
+
+		this.type = type;
+		this.description = description;
+		this.nullable = nullable;
+		this.defaultValue = defaultValue;
+		this.checkExpression = checkExpression;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public boolean isNullable() {
+		return nullable;
+	}
+
+	public String getDefaultValue() {
+		return defaultValue;
+	}
+
+	public String getCheckExpression() {
+		return checkExpression;
+	}
+}
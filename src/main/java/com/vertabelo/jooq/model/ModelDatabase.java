@@ -0,0 +1,67 @@
+package com.vertabelo.jooq.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Version neutral Vertabelo model, limited to what the code generator reads:
+ * tables, views, references and sequences. Diagram data is not part of it.
+ *
+ * Instances are immutable and built by the adapter of the XML version the
+ * model was read from, or read back from a {@link ModelSnapshot}.
+ */
+public final class ModelDatabase {
+
+	private final String version;
+	private final List<ModelTable> tables;
+	private final List<ModelView> views;
+	private final List<ModelReference> references;
+	private final List<ModelSequence> sequences;
+
+	private volatile ModelIndex index;
+
+	public ModelDatabase(String version, List<ModelTable> tables, List<ModelView> views,
+			List<ModelReference> references, List<ModelSequence> sequences) {
+		this.version = version;
+		this.tables = Collections.unmodifiableList(tables);
+		this.views = Collections.unmodifiableList(views);
+		this.references = Collections.unmodifiableList(references);
+		this.sequences = Collections.unmodifiableList(sequences);
+	}
+
+	/**
+	 * @return Vertabelo XML version of the source model
+	 */
+	public String getVersion() {
+		return version;
+	}
+
+	public List<ModelTable> getTables() {
+		return tables;
+	}
+
+	public List<ModelView> getViews() {
+		return views;
+	}
+
+	public List<ModelReference> getReferences() {
+		return references;
+	}
+
+	public List<ModelSequence> getSequences() {
+		return sequences;
+	}
+
+	/**
+	 * @return lookup structures of this model, built on first use
+	 */
+	public ModelIndex getIndex() {
+		ModelIndex result = index;
+		if (result == null) {
+			// concurrent callers may both build an index, they are equal
+			result = new ModelIndex(this);
+			index = result;
+		}
+		return result;
+	}
+}
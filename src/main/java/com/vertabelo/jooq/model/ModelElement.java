@@ -0,0 +1,84 @@
+package com.vertabelo.jooq.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Base class of named model elements carrying additional properties.
+ */
+public abstract class ModelElement {
+
+	// lower case property names shared by all elements, there are only a few
+	private static final int MAX_PROPERTY_KEYS = 1024;
+	private static final ConcurrentMap<String, String> PROPERTY_KEYS = new ConcurrentHashMap<String, String>();
+
+	private final String id;
+	private final String name;
+	private final List<ModelProperty> properties;
+
+	// property values by lower case name, the first property of a name wins
+	private final Map<String, String> propertyValues;
+
+	protected ModelElement(String id, String name, List<ModelProperty> properties) {
+		this.id = id;
+		this.name = name;
+		// most elements have no or a single property, a large model has millions
+		if (properties.isEmpty()) {
+			this.properties = Collections.emptyList();
+			this.propertyValues = Collections.emptyMap();
+		} else if (properties.size() == 1) {
+			ModelProperty property = properties.get(0);
+			this.properties = Collections.singletonList(property);
+			this.propertyValues = Collections.singletonMap(propertyKey(property.getName()), property.getValue());
+		} else {
+			this.properties = Collections.unmodifiableList(properties);
+			this.propertyValues = new HashMap<String, String>(properties.size() * 2);
+			for (ModelProperty property : properties) {
+				String key = propertyKey(property.getName());
+				if (!propertyValues.containsKey(key)) {
+					propertyValues.put(key, property.getValue());
+				}
+			}
+		}
+	}
+
+	private static String propertyKey(String name) {
+		String result = PROPERTY_KEYS.get(name);
+		if (result == null) {
+			result = name.toLowerCase(Locale.ROOT);
+			if (PROPERTY_KEYS.size() < MAX_PROPERTY_KEYS) {
+				PROPERTY_KEYS.putIfAbsent(name, result);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the element id used for references within the model file
+	 */
+	public String getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public List<ModelProperty> getProperties() {
+		return properties;
+	}
+
+	/**
+	 * @param name property name, compared ignoring case
+	 * @return the property value or <code>null</code> if the property is not
+	 *         set
+	 */
+	public String getPropertyValue(String name) {
+		return propertyValues.get(name.toLowerCase(Locale.ROOT));
+	}
+}
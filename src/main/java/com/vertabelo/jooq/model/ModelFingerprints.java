@@ -0,0 +1,328 @@
+package com.vertabelo.jooq.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.jooq.tools.JooqLogger;
+
+/**
+ * Content fingerprints of the tables, views and sequences of a model.
+ *
+ * A table fingerprint covers its columns, keys, checks, additional properties
+ * and all references the table takes part in, so a definition whose
+ * fingerprint did not change generates the same code as before. Fingerprints
+ * are keyed by kind, schema and name, e.g. <code>table:crm.customer</code>.
+ */
+public class ModelFingerprints {
+
+	private static final JooqLogger log = JooqLogger.getLogger(ModelFingerprints.class);
+
+	public static final String TABLE = "table";
+	public static final String VIEW = "view";
+	public static final String SEQUENCE = "sequence";
+
+	private ModelFingerprints() {
+	}
+
+	/**
+	 * @return the key of a definition
+	 */
+	public static String key(String kind, String schemaName, String name) {
+		return kind + ":" + schemaName + "." + name;
+	}
+
+	/**
+	 * @return the fingerprints of all tables, views and sequences in model
+	 *         order
+	 */
+	public static Map<String, String> compute(ModelDatabase model) {
+		Map<String, String> result = new LinkedHashMap<String, String>();
+		ModelIndex index = model.getIndex();
+
+		// references are part of both tables they connect
+		Map<ModelTable, List<ModelReference>> references = new IdentityHashMap<ModelTable, List<ModelReference>>();
+		for (ModelReference reference : model.getReferences()) {
+			addReference(references, reference.getPKTable(), reference);
+			if (reference.getFKTable() != reference.getPKTable()) {
+				addReference(references, reference.getFKTable(), reference);
+			}
+		}
+
+		for (ModelTable table : model.getTables()) {
+			Fingerprint fingerprint = content(new Fingerprint(index), table);
+
+			List<ModelReference> tableReferences = references.get(table);
+			fingerprint.add(tableReferences != null ? tableReferences.size() : 0);
+			if (tableReferences != null) {
+				for (ModelReference reference : tableReferences) {
+					fingerprint.add(reference);
+				}
+			}
+
+			result.put(key(TABLE, index.getSchemaName(table), table.getName()), fingerprint.toString());
+		}
+
+		for (ModelView view : model.getViews()) {
+			result.put(key(VIEW, index.getSchemaName(view), view.getName()),
+					content(new Fingerprint(index), view).toString());
+		}
+
+		for (ModelSequence sequence : model.getSequences()) {
+			result.put(key(SEQUENCE, index.getSchemaName(sequence), sequence.getName()),
+					content(new Fingerprint(index), sequence).toString());
+		}
+
+		return result;
+	}
+
+	/**
+	 * Fingerprint of the definition itself, without the references a table
+	 * takes part in. Models read from different files can be compared by it.
+	 *
+	 * @param element a table, view or sequence
+	 */
+	static String content(ModelElement element) {
+		Fingerprint fingerprint = new Fingerprint(null);
+		if (element instanceof ModelTable) {
+			content(fingerprint, (ModelTable) element);
+		} else if (element instanceof ModelView) {
+			content(fingerprint, (ModelView) element);
+		} else if (element instanceof ModelSequence) {
+			content(fingerprint, (ModelSequence) element);
+		} else {
+			throw new IllegalArgumentException("Not a table, view or sequence: " + element.getName());
+		}
+		return fingerprint.toString();
+	}
+
+	private static Fingerprint content(Fingerprint fingerprint, ModelTable table) {
+		fingerprint.add(table.getName()).add(table.getDescription()).addProperties(table);
+
+		for (ModelColumn column : table.getColumns()) {
+			fingerprint.add(column.getName()).add(column.getType()).add(column.getDescription())
+					.add(Boolean.toString(column.isNullable())).add(column.getDefaultValue())
+					.add(column.getCheckExpression()).addProperties(column);
+		}
+
+		fingerprint.add(table.getPrimaryKey());
+		fingerprint.add(table.getAlternateKeys().size());
+		for (ModelKey key : table.getAlternateKeys()) {
+			fingerprint.add(key);
+		}
+
+		fingerprint.add(table.getIndexes().size());
+		for (ModelTableIndex index : table.getIndexes()) {
+			fingerprint.add(index);
+		}
+
+		fingerprint.add(table.getChecks().size());
+		for (ModelCheck check : table.getChecks()) {
+			fingerprint.add(check.getName()).add(check.getCheckExpression()).addProperties(check);
+		}
+		return fingerprint;
+	}
+
+	private static Fingerprint content(Fingerprint fingerprint, ModelView view) {
+		fingerprint.add(view.getName()).add(view.getDescription()).addProperties(view);
+
+		for (ModelViewColumn column : view.getColumns()) {
+			fingerprint.add(column.getName()).add(column.getType()).add(column.getDescription()).addProperties(column);
+		}
+		return fingerprint;
+	}
+
+	private static Fingerprint content(Fingerprint fingerprint, ModelSequence sequence) {
+		return fingerprint.add(sequence.getName()).add(sequence.getStartWith()).add(sequence.getIncrementBy())
+				.add(sequence.getMinValue()).add(sequence.getMaxValue()).add(sequence.isCycle() ? 1 : 0)
+				.add(sequence.getCache()).addProperties(sequence);
+	}
+
+	private static void addReference(Map<ModelTable, List<ModelReference>> references, ModelTable table,
+			ModelReference reference) {
+		if (table == null) {
+			return;
+		}
+
+		List<ModelReference> tableReferences = references.get(table);
+		if (tableReferences == null) {
+			tableReferences = new ArrayList<ModelReference>();
+			references.put(table, tableReferences);
+		}
+		tableReferences.add(reference);
+	}
+
+	/**
+	 * Reads a manifest written by {@link #write(Path, Map)}.
+	 *
+	 * @return the fingerprints, empty if there is no readable manifest
+	 */
+	public static Map<String, String> read(Path file) {
+		Map<String, String> result = new LinkedHashMap<String, String>();
+		if (!Files.isRegularFile(file)) {
+			return result;
+		}
+
+		Properties manifest = new Properties();
+		try (InputStream in = Files.newInputStream(file)) {
+			manifest.load(in);
+		} catch (IOException e) {
+			log.warn("Ignoring unreadable fingerprint manifest: " + file, e);
+			return result;
+		}
+
+		for (String key : manifest.stringPropertyNames()) {
+			result.put(key, manifest.getProperty(key));
+		}
+		return result;
+	}
+
+	/**
+	 * Writes a fingerprint manifest. Failures are logged, a missing manifest
+	 * only means all definitions count as changed next time.
+	 */
+	public static void write(Path file, Map<String, String> fingerprints) {
+		Properties manifest = new Properties();
+		manifest.putAll(fingerprints);
+
+		try {
+			Path directory = file.toAbsolutePath().getParent();
+			Files.createDirectories(directory);
+
+			Path tmp = Files.createTempFile(directory, "fingerprints", ".tmp");
+			try {
+				try (OutputStream out = Files.newOutputStream(tmp)) {
+					manifest.store(out, "Vertabelo model fingerprints");
+				}
+				Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tmp);
+			}
+		} catch (IOException e) {
+			log.warn("Cannot write fingerprint manifest: " + file, e);
+		}
+	}
+
+	/**
+	 * SHA-256 over length prefixed values, so adjacent values cannot run into
+	 * each other.
+	 */
+	private static final class Fingerprint {
+
+		private final ModelIndex index;
+		private final MessageDigest digest;
+
+		Fingerprint(ModelIndex index) {
+			this.index = index;
+			try {
+				digest = MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException e) {
+				throw new RuntimeException("Impossible has happen.", e);
+			}
+		}
+
+		Fingerprint add(int value) {
+			digest.update((byte) (value >>> 24));
+			digest.update((byte) (value >>> 16));
+			digest.update((byte) (value >>> 8));
+			digest.update((byte) value);
+			return this;
+		}
+
+		Fingerprint add(String value) {
+			if (value == null) {
+				return add(-1);
+			}
+
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			add(bytes.length);
+			digest.update(bytes);
+			return this;
+		}
+
+		Fingerprint addProperties(ModelElement element) {
+			if (element == null) {
+				return add(-1);
+			}
+
+			add(element.getProperties().size());
+			for (ModelProperty property : element.getProperties()) {
+				add(property.getName()).add(property.getValue());
+			}
+			return this;
+		}
+
+		Fingerprint add(ModelKey key) {
+			if (key == null) {
+				return add(-1);
+			}
+
+			add(key.getName());
+			add(key.getColumns().size());
+			for (ModelColumn column : key.getColumns()) {
+				add(column != null ? column.getName() : null);
+			}
+			return addProperties(key);
+		}
+
+		Fingerprint add(ModelTableIndex index) {
+			add(index.getName());
+			add(index.getColumns().size());
+			for (ModelIndexColumn column : index.getColumns()) {
+				add(column.getColumn() != null ? column.getColumn().getName() : null);
+				add(column.isAscending() ? 1 : 0);
+			}
+			return addProperties(index);
+		}
+
+		// identifies a table referenced from another definition
+		Fingerprint add(ModelTable table) {
+			if (table == null) {
+				return add(-1);
+			}
+			return add(index.getSchemaName(table)).add(table.getName());
+		}
+
+		Fingerprint add(ModelReference reference) {
+			add(reference.getName());
+			add(reference.getPKTable());
+			add(reference.getFKTable());
+			add(reference.getReferenceColumns().size());
+			for (ModelReferenceColumn referenceColumn : reference.getReferenceColumns()) {
+				add(referenceColumn.getPKColumn() != null ? referenceColumn.getPKColumn().getName() : null);
+				add(referenceColumn.getFKColumn() != null ? referenceColumn.getFKColumn().getName() : null);
+			}
+
+			// the referenced key decides whether the foreign key is generated
+			if (reference.getPKTable() != null) {
+				add(reference.getPKTable().getPrimaryKey());
+				for (ModelKey key : reference.getPKTable().getAlternateKeys()) {
+					add(key);
+				}
+			}
+			return addProperties(reference);
+		}
+
+		@Override
+		public String toString() {
+			byte[] bytes = digest.digest();
+			StringBuilder result = new StringBuilder(bytes.length * 2);
+			for (byte b : bytes) {
+				result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return result.toString();
+		}
+	}
+}
@@ -0,0 +1,230 @@
+package com.vertabelo.jooq.model;
+
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Estimated heap usage of a model. Sizes assume a 64-bit JVM with compressed
+ * references, they are good enough to compare models and to spot duplicated
+ * strings, not exact. The {@link ModelIndex}, built on first use, is not
+ * included.
+ */
+public final class ModelFootprint {
+
+	private static final int HEADER = 12;
+	private static final int REFERENCE = 4;
+
+	// strings are stored as UTF-16 before Java 9 and Latin-1 where possible after
+	private static final boolean COMPACT_STRINGS = !System.getProperty("java.specification.version", "1.8")
+			.startsWith("1.");
+
+	private long elements;
+	private long properties;
+	private long stringReferences;
+	private long stringBytes;
+	private long objectBytes;
+
+	private final Map<String, Boolean> strings = new IdentityHashMap<String, Boolean>();
+	private final Set<String> values = new HashSet<String>();
+
+	private ModelFootprint() {
+	}
+
+	public static ModelFootprint of(ModelDatabase model) {
+		ModelFootprint result = new ModelFootprint();
+		result.add(model);
+		return result;
+	}
+
+	private void add(ModelDatabase model) {
+		objectBytes += shallow(6) + list(model.getTables().size()) + list(model.getViews().size())
+				+ list(model.getReferences().size()) + list(model.getSequences().size());
+		string(model.getVersion());
+
+		for (ModelTable table : model.getTables()) {
+			element(table, 6);
+			string(table.getDescription());
+			objectBytes += list(table.getColumns().size()) + list(table.getAlternateKeys().size())
+					+ list(table.getIndexes().size()) + list(table.getChecks().size());
+
+			for (ModelColumn column : table.getColumns()) {
+				element(column, 5);
+				string(column.getType());
+				string(column.getDescription());
+				string(column.getDefaultValue());
+				string(column.getCheckExpression());
+			}
+			if (table.getPrimaryKey() != null) {
+				key(table.getPrimaryKey());
+			}
+			for (ModelKey key : table.getAlternateKeys()) {
+				key(key);
+			}
+			for (ModelTableIndex index : table.getIndexes()) {
+				element(index, 1);
+				objectBytes += list(index.getColumns().size()) + index.getColumns().size() * shallow(2);
+			}
+			for (ModelCheck check : table.getChecks()) {
+				element(check, 1);
+				string(check.getCheckExpression());
+			}
+		}
+
+		for (ModelView view : model.getViews()) {
+			element(view, 2);
+			string(view.getDescription());
+			objectBytes += list(view.getColumns().size());
+
+			for (ModelViewColumn column : view.getColumns()) {
+				element(column, 2);
+				string(column.getType());
+				string(column.getDescription());
+			}
+		}
+
+		for (ModelReference reference : model.getReferences()) {
+			element(reference, 4);
+			objectBytes += list(reference.getReferenceColumns().size()) + list(reference.getPKColumns().size())
+					+ reference.getReferenceColumns().size() * shallow(2);
+		}
+
+		for (ModelSequence sequence : model.getSequences()) {
+			element(sequence, 6);
+			string(sequence.getStartWith());
+			string(sequence.getIncrementBy());
+			string(sequence.getMinValue());
+			string(sequence.getMaxValue());
+			string(sequence.getCache());
+		}
+	}
+
+	private void key(ModelKey key) {
+		element(key, 1);
+		objectBytes += list(key.getColumns().size());
+	}
+
+	private void element(ModelElement element, int fields) {
+		elements++;
+		objectBytes += shallow(4 + fields);
+		string(element.getId());
+		string(element.getName());
+
+		List<ModelProperty> elementProperties = element.getProperties();
+		int count = elementProperties.size();
+		properties += count;
+		objectBytes += count * shallow(2);
+		if (count == 1) {
+			// singleton list and map
+			objectBytes += shallow(1) + shallow(5);
+		} else if (count > 1) {
+			// list and a hash map of lower case names, some of them shared
+			objectBytes += list(count) + shallow(9) + array(Integer.highestOneBit(count * 2 - 1) * 2)
+					+ count * shallow(4);
+		}
+
+		for (ModelProperty property : elementProperties) {
+			string(property.getName());
+			string(property.getValue());
+		}
+	}
+
+	private void string(String value) {
+		if (value == null) {
+			return;
+		}
+
+		stringReferences++;
+		if (strings.put(value, Boolean.TRUE) == null) {
+			values.add(value);
+			stringBytes += shallow(3) + align(HEADER + 4 + value.length() * bytesPerChar(value));
+		}
+	}
+
+	private static int bytesPerChar(String value) {
+		if (!COMPACT_STRINGS) {
+			return 2;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			if (value.charAt(i) > 0xFF) {
+				return 2;
+			}
+		}
+		return 1;
+	}
+
+	// an unmodifiable wrapper of an array list without spare capacity
+	private static long list(int size) {
+		return size == 0 ? 0 : shallow(2) + shallow(3) + array(size);
+	}
+
+	private static long array(int length) {
+		return align(HEADER + 4 + (long) length * REFERENCE);
+	}
+
+	private static long shallow(int fields) {
+		return align(HEADER + (long) fields * REFERENCE);
+	}
+
+	private static long align(long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+
+	/**
+	 * @return tables, columns, keys, indexes, checks, views, view columns,
+	 *         references and sequences
+	 */
+	public long getElementCount() {
+		return elements;
+	}
+
+	public long getPropertyCount() {
+		return properties;
+	}
+
+	/**
+	 * @return references to strings, including repeated references to the
+	 *         same instance
+	 */
+	public long getStringReferenceCount() {
+		return stringReferences;
+	}
+
+	/**
+	 * @return distinct string instances
+	 */
+	public long getStringCount() {
+		return strings.size();
+	}
+
+	/**
+	 * @return string instances equal to another instance, which pooling
+	 *         would have saved
+	 */
+	public long getDuplicateStringCount() {
+		return strings.size() - values.size();
+	}
+
+	/**
+	 * @return estimated bytes of all distinct string instances
+	 */
+	public long getStringBytes() {
+		return stringBytes;
+	}
+
+	/**
+	 * @return estimated bytes of the model including its strings
+	 */
+	public long getEstimatedBytes() {
+		return objectBytes + stringBytes;
+	}
+
+	@Override
+	public String toString() {
+		return elements + " elements, " + properties + " properties, " + stringReferences + " string references to "
+				+ strings.size() + " strings (" + getDuplicateStringCount() + " duplicates, " + (stringBytes >> 10)
+				+ " KB), about " + (getEstimatedBytes() >> 10) + " KB in total";
+	}
+}
@@ -0,0 +1,199 @@
+package com.vertabelo.jooq.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lookup structures of a model, built once in a single pass so that the
+ * database never scans the model to find an element or its schema.
+ *
+ * Lists keep the order of the model.
+ */
+public final class ModelIndex {
+
+	private static final String SCHEMA_PROPERTY_NAME = "schema";
+
+	private final Map<ModelElement, String> schemaNames = new IdentityHashMap<ModelElement, String>();
+	private final Map<String, ModelElement> elements = new HashMap<String, ModelElement>();
+
+	// unique keys of each table by their ordered columns, columns compare by identity
+	private final Map<ModelTable, Map<List<ModelColumn>, ModelKey>> uniqueKeys = new IdentityHashMap<ModelTable, Map<List<ModelColumn>, ModelKey>>();
+
+	private final Map<String, SchemaElements> schemas = new HashMap<String, SchemaElements>();
+
+	// schemas of tables and views in order of appearance, tables before views
+	private final List<String> schemaNameList = new ArrayList<String>();
+
+	ModelIndex(ModelDatabase model) {
+		for (ModelTable table : model.getTables()) {
+			schema(table, true).tables.add(table);
+			addElement(table);
+
+			for (ModelColumn column : table.getColumns()) {
+				addElement(column);
+			}
+			if (table.getPrimaryKey() != null) {
+				addElement(table.getPrimaryKey());
+			}
+			for (ModelKey key : table.getAlternateKeys()) {
+				addElement(key);
+			}
+			for (ModelTableIndex index : table.getIndexes()) {
+				addElement(index);
+			}
+			for (ModelCheck check : table.getChecks()) {
+				addElement(check);
+			}
+
+			addUniqueKeys(table);
+		}
+
+		for (ModelView view : model.getViews()) {
+			schema(view, true).views.add(view);
+			addElement(view);
+
+			for (ModelViewColumn column : view.getColumns()) {
+				addElement(column);
+			}
+		}
+
+		for (ModelReference reference : model.getReferences()) {
+			addElement(reference);
+		}
+
+		for (ModelSequence sequence : model.getSequences()) {
+			// sequences alone do not make a schema
+			schema(sequence, false).sequences.add(sequence);
+			addElement(sequence);
+		}
+	}
+
+	private SchemaElements schema(ModelElement element, boolean definesSchema) {
+		String schemaName = schemaNameOf(element);
+		schemaNames.put(element, schemaName);
+
+		SchemaElements schema = schemas.get(schemaName);
+		if (schema == null) {
+			schema = new SchemaElements();
+			schemas.put(schemaName, schema);
+		}
+		if (definesSchema && !schema.defined) {
+			schema.defined = true;
+			schemaNameList.add(schemaName);
+		}
+		return schema;
+	}
+
+	private void addUniqueKeys(ModelTable table) {
+		if (table.getPrimaryKey() == null && table.getAlternateKeys().isEmpty()) {
+			return;
+		}
+
+		// the primary key comes first, the first of equal keys wins
+		Map<List<ModelColumn>, ModelKey> keys = new HashMap<List<ModelColumn>, ModelKey>();
+		if (table.getPrimaryKey() != null) {
+			keys.put(table.getPrimaryKey().getColumns(), table.getPrimaryKey());
+		}
+		for (ModelKey key : table.getAlternateKeys()) {
+			if (!keys.containsKey(key.getColumns())) {
+				keys.put(key.getColumns(), key);
+			}
+		}
+		uniqueKeys.put(table, keys);
+	}
+
+	private void addElement(ModelElement element) {
+		if (element.getId() != null && !elements.containsKey(element.getId())) {
+			elements.put(element.getId(), element);
+		}
+	}
+
+	/**
+	 * @return the schema name of an element without building an index, an
+	 *         empty string for the default schema
+	 */
+	public static String schemaNameOf(ModelElement element) {
+		String schemaName = element.getPropertyValue(SCHEMA_PROPERTY_NAME);
+		return schemaName != null ? schemaName : "";
+	}
+
+	/**
+	 * @return the same as {@link #getSchemaNames()} of the index of the
+	 *         model, without building the index
+	 */
+	public static List<String> schemaNamesOf(ModelDatabase model) {
+		Set<String> result = new LinkedHashSet<String>();
+		for (ModelTable table : model.getTables()) {
+			result.add(schemaNameOf(table));
+		}
+		for (ModelView view : model.getViews()) {
+			result.add(schemaNameOf(view));
+		}
+		return new ArrayList<String>(result);
+	}
+
+	/**
+	 * @return names of the schemas of all tables and views, the default
+	 *         schema is an empty string
+	 */
+	public List<String> getSchemaNames() {
+		return Collections.unmodifiableList(schemaNameList);
+	}
+
+	/**
+	 * @return the schema name of a table, view or sequence, an empty string
+	 *         for the default schema
+	 */
+	public String getSchemaName(ModelElement element) {
+		String schemaName = schemaNames.get(element);
+		return schemaName != null ? schemaName : schemaNameOf(element);
+	}
+
+	public List<ModelTable> getTables(String schemaName) {
+		SchemaElements schema = schemas.get(schemaName);
+		return schema != null ? Collections.unmodifiableList(schema.tables) : Collections.<ModelTable> emptyList();
+	}
+
+	public List<ModelView> getViews(String schemaName) {
+		SchemaElements schema = schemas.get(schemaName);
+		return schema != null ? Collections.unmodifiableList(schema.views) : Collections.<ModelView> emptyList();
+	}
+
+	public List<ModelSequence> getSequences(String schemaName) {
+		SchemaElements schema = schemas.get(schemaName);
+		return schema != null ? Collections.unmodifiableList(schema.sequences) : Collections.<ModelSequence> emptyList();
+	}
+
+	/**
+	 * Finds the primary or alternate key of a table made of exactly the given
+	 * columns in the given order.
+	 *
+	 * @return the key or <code>null</code> if there is no such key
+	 */
+	public ModelKey getUniqueKey(ModelTable table, List<ModelColumn> columns) {
+		Map<List<ModelColumn>, ModelKey> keys = uniqueKeys.get(table);
+		return keys != null ? keys.get(columns) : null;
+	}
+
+	/**
+	 * @param id element id used for references within the model file
+	 * @return the element or <code>null</code>
+	 */
+	public ModelElement getElement(String id) {
+		return elements.get(id);
+	}
+
+	private static final class SchemaElements {
+
+		final List<ModelTable> tables = new ArrayList<ModelTable>();
+		final List<ModelView> views = new ArrayList<ModelView>();
+		final List<ModelSequence> sequences = new ArrayList<ModelSequence>();
+		boolean defined;
+	}
+}
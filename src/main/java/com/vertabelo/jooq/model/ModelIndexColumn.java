@@ -0,0 +1,23 @@
+package com.vertabelo.jooq.model;
+
+/**
+ * A column of an index with its sort direction.
+ */
+public final class ModelIndexColumn {
+
+	private final ModelColumn column;
+	private final boolean ascending;
+
+	public ModelIndexColumn(ModelColumn column, boolean ascending) {
+		this.column = column;
+		this.ascending = ascending;
+	}
+
+	public ModelColumn getColumn() {
+		return column;
+	}
+
+	public boolean isAscending() {
+		return ascending;
+	}
+}
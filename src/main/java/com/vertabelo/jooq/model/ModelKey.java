@@ -0,0 +1,25 @@
+package com.vertabelo.jooq.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A primary or alternate key of a table.
+ */
+public final class ModelKey extends ModelElement {
+
+	private final List<ModelColumn> columns;
+
+	public ModelKey(String id, String name, List<ModelColumn> columns, List<ModelProperty> properties) {
+		super(id, name, properties);
+
+		this.columns = Collections.unmodifiableList(columns);
+	}
+
+	/**
+	 * @return key columns in key order
+	 */
+	public List<ModelColumn> getColumns() {
+		return columns;
+	}
+}
@@ -0,0 +1,212 @@
+package com.vertabelo.jooq.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jooq.tools.JooqLogger;
+
+/**
+ * Merges models read from several files into one model, in file order.
+ *
+ * Tables, views and sequences are identified by schema and name. A definition
+ * found in more than one file is handled according to the duplicates mode:
+ * <ul>
+ * <li><code>identical</code> keeps the first one if all are identical and
+ * fails otherwise,</li>
+ * <li><code>first</code> keeps the first one and logs a warning for each
+ * differing one,</li>
+ * <li><code>fail</code> fails on any duplicate.</li>
+ * </ul>
+ * References to a dropped table are redirected to the table kept in its
+ * place, matching columns by name. A reference that becomes a duplicate of an
+ * earlier one of the same name is dropped.
+ *
+ * Element ids are unique within their file only, so
+ * {@link ModelIndex#getElement(String)} returns the first element of an id.
+ */
+public final class ModelMerger {
+
+	private static final JooqLogger log = JooqLogger.getLogger(ModelMerger.class);
+
+	public static final String DUPLICATES_IDENTICAL = "identical";
+	public static final String DUPLICATES_FIRST = "first";
+	public static final String DUPLICATES_FAIL = "fail";
+
+	private final String duplicates;
+
+	// definitions kept by key, with the file they were taken from
+	private final Map<String, ModelElement> definitions = new HashMap<String, ModelElement>();
+	private final Map<String, String> definitionSources = new HashMap<String, String>();
+
+	// dropped duplicate tables to the tables kept in their place
+	private final Map<ModelTable, ModelTable> replacedTables = new IdentityHashMap<ModelTable, ModelTable>();
+
+	// names of the references kept, by referencing table
+	private final Map<ModelTable, Set<String>> referenceNames = new IdentityHashMap<ModelTable, Set<String>>();
+
+	private final List<ModelTable> tables = new ArrayList<ModelTable>();
+	private final List<ModelView> views = new ArrayList<ModelView>();
+	private final List<ModelReference> references = new ArrayList<ModelReference>();
+	private final List<ModelSequence> sequences = new ArrayList<ModelSequence>();
+
+	private ModelMerger(String duplicates) {
+		if (!DUPLICATES_IDENTICAL.equals(duplicates) && !DUPLICATES_FIRST.equals(duplicates)
+				&& !DUPLICATES_FAIL.equals(duplicates)) {
+			throw new IllegalArgumentException("Unknown duplicates mode: " + duplicates);
+		}
+		this.duplicates = duplicates;
+	}
+
+	/**
+	 * @param sources names of the files the models were read from, used in
+	 *            messages
+	 * @param models models in file order
+	 * @param duplicates how definitions found in more than one file are
+	 *            handled, one of the <code>DUPLICATES_*</code> constants
+	 * @return the merged model, its version is the one of the first model
+	 */
+	public static ModelDatabase merge(List<String> sources, List<ModelDatabase> models, String duplicates) {
+		if (sources.size() != models.size()) {
+			throw new IllegalArgumentException("Expected one source per model");
+		}
+
+		ModelMerger merger = new ModelMerger(duplicates);
+		for (int i = 0; i < models.size(); i++) {
+			merger.add(sources.get(i), models.get(i));
+		}
+		for (ModelDatabase model : models) {
+			merger.addReferences(model);
+		}
+
+		String version = models.isEmpty() ? null : models.get(0).getVersion();
+		return new ModelDatabase(version, merger.tables, merger.views, merger.references, merger.sequences);
+	}
+
+	private void add(String source, ModelDatabase model) {
+		ModelIndex index = model.getIndex();
+
+		for (ModelTable table : model.getTables()) {
+			ModelTable kept = (ModelTable) keep(source, ModelFingerprints.TABLE, index.getSchemaName(table), table);
+			if (kept == null) {
+				tables.add(table);
+			} else {
+				replacedTables.put(table, kept);
+			}
+		}
+
+		for (ModelView view : model.getViews()) {
+			if (keep(source, ModelFingerprints.VIEW, index.getSchemaName(view), view) == null) {
+				views.add(view);
+			}
+		}
+
+		for (ModelSequence sequence : model.getSequences()) {
+			if (keep(source, ModelFingerprints.SEQUENCE, index.getSchemaName(sequence), sequence) == null) {
+				sequences.add(sequence);
+			}
+		}
+	}
+
+	/**
+	 * @return <code>null</code> if the definition is new, the definition
+	 *         kept in its place otherwise
+	 */
+	private ModelElement keep(String source, String kind, String schemaName, ModelElement element) {
+		String key = ModelFingerprints.key(kind, schemaName, element.getName());
+		ModelElement kept = definitions.get(key);
+		if (kept == null) {
+			definitions.put(key, element);
+			definitionSources.put(key, source);
+			return null;
+		}
+
+		String name = kind + " " + (schemaName.isEmpty() ? "" : schemaName + ".") + element.getName();
+		String keptSource = definitionSources.get(key);
+		if (DUPLICATES_FAIL.equals(duplicates)) {
+			throw new IllegalStateException("Duplicate " + name + " in " + keptSource + " and " + source);
+		}
+
+		if (!ModelFingerprints.content(kept).equals(ModelFingerprints.content(element))) {
+			if (DUPLICATES_IDENTICAL.equals(duplicates)) {
+				throw new IllegalStateException("Different definitions of " + name + " in " + keptSource + " and "
+						+ source);
+			}
+			log.warn("Different definitions of " + name + " in " + keptSource + " and " + source + ", using "
+					+ keptSource);
+		} else {
+			log.debug("Identical definitions of " + name + " in " + keptSource + " and " + source);
+		}
+		return kept;
+	}
+
+	private void addReferences(ModelDatabase model) {
+		for (ModelReference reference : model.getReferences()) {
+			ModelReference merged = redirect(reference);
+			if (merged != null && addReferenceName(merged.getFKTable(), merged.getName())) {
+				references.add(merged);
+			}
+		}
+	}
+
+	/**
+	 * @return <code>false</code> if the table already has a reference of
+	 *         that name
+	 */
+	private boolean addReferenceName(ModelTable fkTable, String name) {
+		Set<String> names = referenceNames.get(fkTable);
+		if (names == null) {
+			names = new HashSet<String>();
+			referenceNames.put(fkTable, names);
+		}
+		return names.add(name);
+	}
+
+	/**
+	 * @return the reference between the kept tables or <code>null</code> if
+	 *         a kept table lacks one of its columns
+	 */
+	private ModelReference redirect(ModelReference reference) {
+		ModelTable pkTable = replacedTables.get(reference.getPKTable());
+		ModelTable fkTable = replacedTables.get(reference.getFKTable());
+		if (pkTable == null && fkTable == null) {
+			return reference;
+		}
+		if (pkTable == null) {
+			pkTable = reference.getPKTable();
+		}
+		if (fkTable == null) {
+			fkTable = reference.getFKTable();
+		}
+
+		List<ModelReferenceColumn> columns = new ArrayList<ModelReferenceColumn>();
+		for (ModelReferenceColumn column : reference.getReferenceColumns()) {
+			ModelColumn pkColumn = column(pkTable, column.getPKColumn());
+			ModelColumn fkColumn = column(fkTable, column.getFKColumn());
+			if (pkColumn == null || fkColumn == null) {
+				log.warn("Dropping reference " + reference.getName() + ", a merged table lacks one of its columns");
+				return null;
+			}
+			columns.add(new ModelReferenceColumn(pkColumn, fkColumn));
+		}
+
+		return new ModelReference(reference.getId(), reference.getName(), pkTable, fkTable, columns,
+				reference.getProperties());
+	}
+
+	private static ModelColumn column(ModelTable table, ModelColumn column) {
+		if (table == null || column == null) {
+			return column;
+		}
+		for (ModelColumn result : table.getColumns()) {
+			if (result == column || result.getName().equals(column.getName())) {
+				return result;
+			}
+		}
+		return null;
+	}
+}
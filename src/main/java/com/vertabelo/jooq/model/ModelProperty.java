@@ -0,0 +1,23 @@
+package com.vertabelo.jooq.model;
+
+/**
+ * An additional property of a model element.
+ */
+public final class ModelProperty {
+
+	private final String name;
+	private final String value;
+
+	public ModelProperty(String name, String value) {
+		this.name = name;
+		this.value = value;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getValue() {
+		return value;
+	}
+}
@@ -0,0 +1,53 @@
+package com.vertabelo.jooq.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A reference (foreign key) between two tables.
+ */
+public final class ModelReference extends ModelElement {
+
+	private final ModelTable pkTable;
+	private final ModelTable fkTable;
+	private final List<ModelReferenceColumn> referenceColumns;
+	private final List<ModelColumn> pkColumns;
+
+	public ModelReference(String id, String name, ModelTable pkTable, ModelTable fkTable,
+			List<ModelReferenceColumn> referenceColumns, List<ModelProperty> properties) {
+		super(id, name, properties);
+
+		this.pkTable = pkTable;
+		this.fkTable = fkTable;
+		this.referenceColumns = Collections.unmodifiableList(referenceColumns);
+
+		List<ModelColumn> columns = new ArrayList<ModelColumn>(referenceColumns.size());
+		for (ModelReferenceColumn referenceColumn : referenceColumns) {
+			columns.add(referenceColumn.getPKColumn());
+		}
+		this.pkColumns = Collections.unmodifiableList(columns);
+	}
+
+	public ModelTable getPKTable() {
+		return pkTable;
+	}
+
+	public ModelTable getFKTable() {
+		return fkTable;
+	}
+
+	/**
+	 * @return referenced and referencing columns in reference order
+	 */
+	public List<ModelReferenceColumn> getReferenceColumns() {
+		return referenceColumns;
+	}
+
+	/**
+	 * @return referenced columns in reference order
+	 */
+	public List<ModelColumn> getPKColumns() {
+		return pkColumns;
+	}
+}
@@ -0,0 +1,23 @@
+package com.vertabelo.jooq.model;
+
+/**
+ * A pair of columns joined by a reference.
+ */
+public final class ModelReferenceColumn {
+
+	private final ModelColumn pkColumn;
+	private final ModelColumn fkColumn;
+
+	public ModelReferenceColumn(ModelColumn pkColumn, ModelColumn fkColumn) {
+		this.pkColumn = pkColumn;
+		this.fkColumn = fkColumn;
+	}
+
+	public ModelColumn getPKColumn() {
+		return pkColumn;
+	}
+
+	public ModelColumn getFKColumn() {
+		return fkColumn;
+	}
+}
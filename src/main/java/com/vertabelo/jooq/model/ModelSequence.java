@@ -0,0 +1,57 @@
+package com.vertabelo.jooq.model;
+
+import java.util.List;
+
+/**
+ * A sequence. Its numbers are kept as written in the model, <code>null</code>
+ * when not set.
+ */
+public final class ModelSequence extends ModelElement {
+
+	private final String startWith;
+	private final String incrementBy;
+	private final String minValue;
+	private final String maxValue;
+	private final boolean cycle;
+	private final String cache;
+
+	public ModelSequence(String id, String name, String startWith, String incrementBy, String minValue,
+			String maxValue, boolean cycle, String cache, List<ModelProperty> properties) {
+		super(id, name, properties);
+
+		this.startWith = startWith;
+		this.incrementBy = incrementBy;
+		this.minValue = minValue;
+		this.maxValue = maxValue;
+		this.cycle = cycle;
+		this.cache = cache;
+	}
+
+	public String getStartWith() {
+		return startWith;
+	}
+
+	public String getIncrementBy() {
+		return incrementBy;
+	}
+
+	public String getMinValue() {
+		return minValue;
+	}
+
+	public String getMaxValue() {
+		return maxValue;
+	}
+
+	public boolean isCycle() {
+		return cycle;
+	}
+
+	/**
+	 * @return number of values to cache, <code>null</code> unless caching is
+	 *         used
+	 */
+	public String getCache() {
+		return cache;
+	}
+}
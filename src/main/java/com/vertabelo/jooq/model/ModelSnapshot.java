@@ -0,0 +1,493 @@
+package com.vertabelo.jooq.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jooq.tools.JooqLogger;
+
+/**
+ * Compact binary snapshot of a {@link ModelDatabase}.
+ *
+ * Snapshots are stored in a directory, one file per model, named after the
+ * SHA-256 hash of the model XML they were built from. Loading a snapshot skips
+ * XML parsing and JAXB entirely, so an unchanged model is read back in
+ * milliseconds.
+ *
+ * Strings are written once and referred to by index afterwards, references
+ * between elements are written as positions within their parent list.
+ */
+public class ModelSnapshot {
+
+	private static final JooqLogger log = JooqLogger.getLogger(ModelSnapshot.class);
+
+	private static final int MAGIC = 0x564A4D53; // "VJMS"
+
+	// bump whenever the layout below changes, older snapshots are ignored
+	private static final int FORMAT_VERSION = 4;
+
+	private static final String FILE_SUFFIX = ".vjms";
+
+	protected final Path directory;
+
+	public ModelSnapshot(String directory) {
+		this.directory = Paths.get(directory);
+	}
+
+	/**
+	 * @param xml model XML
+	 * @return hex encoded SHA-256 hash of the model XML
+	 */
+	public static String hash(byte[] xml) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(xml);
+			StringBuilder result = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return result.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("Impossible has happen.", e);
+		}
+	}
+
+	/**
+	 * @param hash hash of the model XML
+	 * @return the model read from its snapshot or <code>null</code> if there
+	 *         is no usable snapshot
+	 */
+	public ModelDatabase load(String hash) {
+		Path file = directory.resolve(hash + FILE_SUFFIX);
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+			ModelDatabase model = read(in);
+			if (model == null) {
+				log.info("Ignoring snapshot of a different format: " + file);
+			}
+			return model;
+		} catch (IOException | RuntimeException e) {
+			log.warn("Ignoring unreadable snapshot: " + file, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Stores a snapshot of the model. Failures are logged, a missing snapshot
+	 * only means the model gets parsed again next time.
+	 *
+	 * @param hash hash of the model XML
+	 * @param model model to store
+	 */
+	public void store(String hash, ModelDatabase model) {
+		Path file = directory.resolve(hash + FILE_SUFFIX);
+
+		try {
+			Files.createDirectories(directory);
+
+			Path tmp = Files.createTempFile(directory, "snapshot", ".tmp");
+			try {
+				try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+					write(model, out);
+				}
+				Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tmp);
+			}
+		} catch (IOException e) {
+			log.warn("Cannot write snapshot: " + file, e);
+		}
+	}
+
+	/**
+	 * Writes a model in the snapshot format.
+	 */
+	public static void write(ModelDatabase model, OutputStream out) throws IOException {
+		SnapshotOutput output = new SnapshotOutput(out);
+
+		output.out.writeInt(MAGIC);
+		output.out.writeInt(FORMAT_VERSION);
+		output.writeString(model.getVersion());
+
+		Map<ModelTable, Integer> tableIndexes = new IdentityHashMap<ModelTable, Integer>();
+		output.writeSize(model.getTables().size());
+		for (ModelTable table : model.getTables()) {
+			tableIndexes.put(table, tableIndexes.size());
+			writeTable(output, table);
+		}
+
+		output.writeSize(model.getViews().size());
+		for (ModelView view : model.getViews()) {
+			output.writeString(view.getId());
+			output.writeString(view.getName());
+			output.writeString(view.getDescription());
+			output.writeSize(view.getColumns().size());
+			for (ModelViewColumn column : view.getColumns()) {
+				output.writeString(column.getId());
+				output.writeString(column.getName());
+				output.writeString(column.getType());
+				output.writeString(column.getDescription());
+				output.writeProperties(column);
+			}
+			output.writeProperties(view);
+		}
+
+		output.writeSize(model.getReferences().size());
+		for (ModelReference reference : model.getReferences()) {
+			output.writeString(reference.getId());
+			output.writeString(reference.getName());
+			output.writeIndex(reference.getPKTable() == null ? null : tableIndexes.get(reference.getPKTable()));
+			output.writeIndex(reference.getFKTable() == null ? null : tableIndexes.get(reference.getFKTable()));
+			output.writeSize(reference.getReferenceColumns().size());
+			for (ModelReferenceColumn referenceColumn : reference.getReferenceColumns()) {
+				output.writeIndex(columnIndex(reference.getPKTable(), referenceColumn.getPKColumn()));
+				output.writeIndex(columnIndex(reference.getFKTable(), referenceColumn.getFKColumn()));
+			}
+			output.writeProperties(reference);
+		}
+
+		output.writeSize(model.getSequences().size());
+		for (ModelSequence sequence : model.getSequences()) {
+			output.writeString(sequence.getId());
+			output.writeString(sequence.getName());
+			output.writeString(sequence.getStartWith());
+			output.writeString(sequence.getIncrementBy());
+			output.writeString(sequence.getMinValue());
+			output.writeString(sequence.getMaxValue());
+			output.out.writeBoolean(sequence.isCycle());
+			output.writeString(sequence.getCache());
+			output.writeProperties(sequence);
+		}
+
+		output.out.flush();
+	}
+
+	private static void writeTable(SnapshotOutput output, ModelTable table) throws IOException {
+		output.writeString(table.getId());
+		output.writeString(table.getName());
+		output.writeString(table.getDescription());
+
+		Map<ModelColumn, Integer> columnIndexes = new IdentityHashMap<ModelColumn, Integer>();
+		output.writeSize(table.getColumns().size());
+		for (ModelColumn column : table.getColumns()) {
+			columnIndexes.put(column, columnIndexes.size());
+			output.writeString(column.getId());
+			output.writeString(column.getName());
+			output.writeString(column.getType());
+			output.writeString(column.getDescription());
+			output.out.writeBoolean(column.isNullable());
+			output.writeString(column.getDefaultValue());
+			output.writeString(column.getCheckExpression());
+			output.writeProperties(column);
+		}
+
+		output.out.writeBoolean(table.getPrimaryKey() != null);
+		if (table.getPrimaryKey() != null) {
+			writeKey(output, table.getPrimaryKey(), columnIndexes);
+		}
+
+		output.writeSize(table.getAlternateKeys().size());
+		for (ModelKey key : table.getAlternateKeys()) {
+			writeKey(output, key, columnIndexes);
+		}
+
+		output.writeSize(table.getIndexes().size());
+		for (ModelTableIndex index : table.getIndexes()) {
+			output.writeString(index.getId());
+			output.writeString(index.getName());
+			output.writeSize(index.getColumns().size());
+			for (ModelIndexColumn column : index.getColumns()) {
+				output.writeIndex(columnIndexes.get(column.getColumn()));
+				output.out.writeBoolean(column.isAscending());
+			}
+			output.writeProperties(index);
+		}
+
+		output.writeSize(table.getChecks().size());
+		for (ModelCheck check : table.getChecks()) {
+			output.writeString(check.getId());
+			output.writeString(check.getName());
+			output.writeString(check.getCheckExpression());
+			output.writeProperties(check);
+		}
+
+		output.writeProperties(table);
+	}
+
+	private static void writeKey(SnapshotOutput output, ModelKey key, Map<ModelColumn, Integer> columnIndexes) throws IOException {
+		output.writeString(key.getId());
+		output.writeString(key.getName());
+		output.writeSize(key.getColumns().size());
+		for (ModelColumn column : key.getColumns()) {
+			output.writeIndex(columnIndexes.get(column));
+		}
+		output.writeProperties(key);
+	}
+
+	private static Integer columnIndex(ModelTable table, ModelColumn column) {
+		if (table == null || column == null) {
+			return null;
+		}
+
+		List<ModelColumn> columns = table.getColumns();
+		for (int i = 0; i < columns.size(); i++) {
+			if (columns.get(i) == column) {
+				return i;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Reads a model written by {@link #write(ModelDatabase, OutputStream)}.
+	 *
+	 * @return the model or <code>null</code> if the input is not a snapshot of
+	 *         the current format
+	 */
+	public static ModelDatabase read(InputStream in) throws IOException {
+		SnapshotInput input = new SnapshotInput(in);
+
+		if (input.in.readInt() != MAGIC || input.in.readInt() != FORMAT_VERSION) {
+			return null;
+		}
+
+		String version = input.readString();
+
+		int tableCount = input.readSize();
+		List<ModelTable> tables = new ArrayList<ModelTable>(tableCount);
+		for (int i = 0; i < tableCount; i++) {
+			tables.add(readTable(input));
+		}
+
+		int viewCount = input.readSize();
+		List<ModelView> views = new ArrayList<ModelView>(viewCount);
+		for (int i = 0; i < viewCount; i++) {
+			String id = input.readString();
+			String name = input.readString();
+			String description = input.readString();
+
+			int columnCount = input.readSize();
+			List<ModelViewColumn> columns = new ArrayList<ModelViewColumn>(columnCount);
+			for (int j = 0; j < columnCount; j++) {
+				columns.add(new ModelViewColumn(input.readString(), input.readString(), input.readString(),
+						input.readString(), input.readProperties()));
+			}
+
+			views.add(new ModelView(id, name, description, columns, input.readProperties()));
+		}
+
+		int referenceCount = input.readSize();
+		List<ModelReference> references = new ArrayList<ModelReference>(referenceCount);
+		for (int i = 0; i < referenceCount; i++) {
+			String id = input.readString();
+			String name = input.readString();
+			ModelTable pkTable = input.readElement(tables);
+			ModelTable fkTable = input.readElement(tables);
+
+			int columnCount = input.readSize();
+			List<ModelReferenceColumn> referenceColumns = new ArrayList<ModelReferenceColumn>(columnCount);
+			for (int j = 0; j < columnCount; j++) {
+				ModelColumn pkColumn = input.readElement(pkTable == null ? null : pkTable.getColumns());
+				ModelColumn fkColumn = input.readElement(fkTable == null ? null : fkTable.getColumns());
+				referenceColumns.add(new ModelReferenceColumn(pkColumn, fkColumn));
+			}
+
+			references.add(new ModelReference(id, name, pkTable, fkTable, referenceColumns, input.readProperties()));
+		}
+
+		int sequenceCount = input.readSize();
+		List<ModelSequence> sequences = new ArrayList<ModelSequence>(sequenceCount);
+		for (int i = 0; i < sequenceCount; i++) {
+			sequences.add(new ModelSequence(input.readString(), input.readString(), input.readString(),
+					input.readString(), input.readString(), input.readString(), input.in.readBoolean(),
+					input.readString(), input.readProperties()));
+		}
+
+		return new ModelDatabase(version, tables, views, references, sequences);
+	}
+
+	private static ModelTable readTable(SnapshotInput input) throws IOException {
+		String id = input.readString();
+		String name = input.readString();
+		String description = input.readString();
+
+		int columnCount = input.readSize();
+		List<ModelColumn> columns = new ArrayList<ModelColumn>(columnCount);
+		for (int i = 0; i < columnCount; i++) {
+			columns.add(new ModelColumn(input.readString(), input.readString(), input.readString(), input.readString(),
+					input.in.readBoolean(), input.readString(), input.readString(), input.readProperties()));
+		}
+
+		ModelKey primaryKey = null;
+		if (input.in.readBoolean()) {
+			primaryKey = readKey(input, columns);
+		}
+
+		int keyCount = input.readSize();
+		List<ModelKey> alternateKeys = new ArrayList<ModelKey>(keyCount);
+		for (int i = 0; i < keyCount; i++) {
+			alternateKeys.add(readKey(input, columns));
+		}
+
+		int indexCount = input.readSize();
+		List<ModelTableIndex> indexes = new ArrayList<ModelTableIndex>(indexCount);
+		for (int i = 0; i < indexCount; i++) {
+			String indexId = input.readString();
+			String indexName = input.readString();
+
+			int indexColumnCount = input.readSize();
+			List<ModelIndexColumn> indexColumns = new ArrayList<ModelIndexColumn>(indexColumnCount);
+			for (int j = 0; j < indexColumnCount; j++) {
+				indexColumns.add(new ModelIndexColumn(input.readElement(columns), input.in.readBoolean()));
+			}
+
+			indexes.add(new ModelTableIndex(indexId, indexName, indexColumns, input.readProperties()));
+		}
+
+		int checkCount = input.readSize();
+		List<ModelCheck> checks = new ArrayList<ModelCheck>(checkCount);
+		for (int i = 0; i < checkCount; i++) {
+			checks.add(new ModelCheck(input.readString(), input.readString(), input.readString(), input.readProperties()));
+		}
+
+		return new ModelTable(id, name, description, columns, primaryKey, alternateKeys, indexes, checks,
+				input.readProperties());
+	}
+
+	private static ModelKey readKey(SnapshotInput input, List<ModelColumn> tableColumns) throws IOException {
+		String id = input.readString();
+		String name = input.readString();
+
+		int columnCount = input.readSize();
+		List<ModelColumn> columns = new ArrayList<ModelColumn>(columnCount);
+		for (int i = 0; i < columnCount; i++) {
+			columns.add(input.readElement(tableColumns));
+		}
+
+		return new ModelKey(id, name, columns, input.readProperties());
+	}
+
+	private static final class SnapshotOutput {
+
+		final DataOutputStream out;
+		final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+		SnapshotOutput(OutputStream out) {
+			this.out = new DataOutputStream(out);
+		}
+
+		void writeSize(int value) throws IOException {
+			while ((value & ~0x7F) != 0) {
+				out.writeByte((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			out.writeByte(value);
+		}
+
+		// null is written as 0, positions are shifted by one
+		void writeIndex(Integer index) throws IOException {
+			writeSize(index == null ? 0 : index + 1);
+		}
+
+		// 0 is null, 1 is a new string, n > 1 is the (n - 2)th string written
+		void writeString(String value) throws IOException {
+			if (value == null) {
+				writeSize(0);
+				return;
+			}
+
+			Integer index = strings.get(value);
+			if (index != null) {
+				writeSize(index + 2);
+				return;
+			}
+
+			strings.put(value, strings.size());
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeSize(1);
+			writeSize(bytes.length);
+			out.write(bytes);
+		}
+
+		void writeProperties(ModelElement element) throws IOException {
+			writeSize(element.getProperties().size());
+			for (ModelProperty property : element.getProperties()) {
+				writeString(property.getName());
+				writeString(property.getValue());
+			}
+		}
+	}
+
+	private static final class SnapshotInput {
+
+		final DataInputStream in;
+		final List<String> strings = new ArrayList<String>();
+
+		SnapshotInput(InputStream in) {
+			this.in = new DataInputStream(in);
+		}
+
+		int readSize() throws IOException {
+			int value = 0;
+			for (int shift = 0; shift < 32; shift += 7) {
+				int b = in.readUnsignedByte();
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+			throw new IOException("Malformed snapshot");
+		}
+
+		<T> T readElement(List<T> elements) throws IOException {
+			int index = readSize();
+			if (index == 0 || elements == null) {
+				return null;
+			}
+			return elements.get(index - 1);
+		}
+
+		String readString() throws IOException {
+			int code = readSize();
+			if (code == 0) {
+				return null;
+			}
+			if (code > 1) {
+				return strings.get(code - 2);
+			}
+
+			byte[] bytes = new byte[readSize()];
+			in.readFully(bytes);
+			String value = new String(bytes, StandardCharsets.UTF_8);
+			strings.add(value);
+			return value;
+		}
+
+		List<ModelProperty> readProperties() throws IOException {
+			int count = readSize();
+			List<ModelProperty> properties = new ArrayList<ModelProperty>(count);
+			for (int i = 0; i < count; i++) {
+				properties.add(new ModelProperty(readString(), readString()));
+			}
+			return properties;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package com.vertabelo.jooq.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A table with its columns and constraints.
+ */
+public final class ModelTable extends ModelElement {
+
+	private final String description;
+	private final List<ModelColumn> columns;
+	private final ModelKey primaryKey;
+	private final List<ModelKey> alternateKeys;
+	private final List<ModelTableIndex> indexes;
+	private final List<ModelCheck> checks;
+
+	public ModelTable(String id, String name, String description, List<ModelColumn> columns, ModelKey primaryKey,
+			List<ModelKey> alternateKeys, List<ModelTableIndex> indexes, List<ModelCheck> checks,
+			List<ModelProperty> properties) {
+		super(id, name, properties);
+
+		this.description = description;
+		this.columns = Collections.unmodifiableList(columns);
+		this.primaryKey = primaryKey;
+		this.alternateKeys = Collections.unmodifiableList(alternateKeys);
+		this.indexes = Collections.unmodifiableList(indexes);
+		this.checks = Collections.unmodifiableList(checks);
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public List<ModelColumn> getColumns() {
+		return columns;
+	}
+
+	/**
+	 * @return the primary key or <code>null</code> if the table has none
+	 */
+	public ModelKey getPrimaryKey() {
+		return primaryKey;
+	}
+
+	public List<ModelKey> getAlternateKeys() {
+		return alternateKeys;
+	}
+
+	public List<ModelTableIndex> getIndexes() {
+		return indexes;
+	}
+
+	public List<ModelCheck> getChecks() {
+		return checks;
+	}
+}
@@ -0,0 +1,26 @@
+package com.vertabelo.jooq.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An index of a table. Not to be confused with the {@link ModelIndex} of a
+ * model.
+ */
+public final class ModelTableIndex extends ModelElement {
+
+	private final List<ModelIndexColumn> columns;
+
+	public ModelTableIndex(String id, String name, List<ModelIndexColumn> columns, List<ModelProperty> properties) {
+		super(id, name, properties);
+
+		this.columns = Collections.unmodifiableList(columns);
+	}
+
+	/**
+	 * @return index columns in index order
+	 */
+	public List<ModelIndexColumn> getColumns() {
+		return columns;
+	}
+}
@@ -0,0 +1,29 @@
+package com.vertabelo.jooq.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A view with its columns.
+ */
+public final class ModelView extends ModelElement {
+
+	private final String description;
+	private final List<ModelViewColumn> columns;
+
+	public ModelView(String id, String name, String description, List<ModelViewColumn> columns,
+			List<ModelProperty> properties) {
+		super(id, name, properties);
+
+		this.description = description;
+		this.columns = Collections.unmodifiableList(columns);
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public List<ModelViewColumn> getColumns() {
+		return columns;
+	}
+}
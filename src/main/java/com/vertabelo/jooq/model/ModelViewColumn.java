@@ -0,0 +1,27 @@
+package com.vertabelo.jooq.model;
+
+import java.util.List;
+
+/**
+ * A view column.
+ */
+public final class ModelViewColumn extends ModelElement {
+
+	private final String type;
+	private final String description;
+
+	public ModelViewColumn(String id, String name, String type, String description, List<ModelProperty> properties) {
+		super(id, name, properties);
+
+		this.type = type;
+		this.description = description;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+}
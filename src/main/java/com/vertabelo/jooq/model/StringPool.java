@@ -0,0 +1,41 @@
+package com.vertabelo.jooq.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Deduplicates the strings of one model while it is built. Type names,
+ * property names and many property values repeat across thousands of
+ * elements, the model keeps one instance of each.
+ *
+ * Unlike {@link String#intern()} the pool lives only as long as the model is
+ * built, strings of earlier models are not retained. Not thread safe.
+ */
+public final class StringPool {
+
+	private final Map<String, String> strings = new HashMap<String, String>();
+
+	/**
+	 * @return the pooled instance equal to the given string, or
+	 *         <code>null</code> if it is <code>null</code>
+	 */
+	public String get(String value) {
+		if (value == null) {
+			return null;
+		}
+
+		String result = strings.get(value);
+		if (result == null) {
+			strings.put(value, value);
+			result = value;
+		}
+		return result;
+	}
+
+	/**
+	 * @return number of distinct strings pooled
+	 */
+	public int size() {
+		return strings.size();
+	}
+}
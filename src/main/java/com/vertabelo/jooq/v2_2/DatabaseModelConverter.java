@@ -0,0 +1,187 @@
+package com.vertabelo.jooq.v2_2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jooq.tools.StringUtils;
+
+import com.vertabelo.jooq.jaxb.v2_2.AlternateKey;
+import com.vertabelo.jooq.jaxb.v2_2.AlternateKeyColumn;
+import com.vertabelo.jooq.jaxb.v2_2.Column;
+import com.vertabelo.jooq.jaxb.v2_2.DatabaseModel;
+import com.vertabelo.jooq.jaxb.v2_2.Index;
+import com.vertabelo.jooq.jaxb.v2_2.IndexColumn;
+import com.vertabelo.jooq.jaxb.v2_2.Property;
+import com.vertabelo.jooq.jaxb.v2_2.Reference;
+import com.vertabelo.jooq.jaxb.v2_2.ReferenceColumn;
+import com.vertabelo.jooq.jaxb.v2_2.Sequence;
+import com.vertabelo.jooq.jaxb.v2_2.Table;
+import com.vertabelo.jooq.jaxb.v2_2.TableCheck;
+import com.vertabelo.jooq.jaxb.v2_2.View;
+import com.vertabelo.jooq.jaxb.v2_2.ViewColumn;
+import com.vertabelo.jooq.model.ModelCheck;
+import com.vertabelo.jooq.model.ModelColumn;
+import com.vertabelo.jooq.model.ModelDatabase;
+import com.vertabelo.jooq.model.ModelIndexColumn;
+import com.vertabelo.jooq.model.ModelKey;
+import com.vertabelo.jooq.model.ModelProperty;
+import com.vertabelo.jooq.model.ModelReference;
+import com.vertabelo.jooq.model.ModelReferenceColumn;
+import com.vertabelo.jooq.model.ModelSequence;
+import com.vertabelo.jooq.model.ModelTable;
+import com.vertabelo.jooq.model.ModelTableIndex;
+import com.vertabelo.jooq.model.ModelView;
+import com.vertabelo.jooq.model.ModelViewColumn;
+import com.vertabelo.jooq.model.StringPool;
+
+/**
+ * Converts an unmarshalled model (XML version v2.1 and v2.2) to a
+ * {@link ModelDatabase}.
+ *
+ * These versions have no primary key element, primary key columns are flagged
+ * on the column and the key name is an additional property of the table.
+ */
+class DatabaseModelConverter {
+
+	private static final String PK_ADDITIONAL_PROPERTY_NAME = "Primary key name";
+
+	// IDREFs are resolved to the referenced JAXB objects
+	private final Map<Object, ModelTable> tables = new IdentityHashMap<Object, ModelTable>();
+	private final Map<Object, ModelColumn> columns = new IdentityHashMap<Object, ModelColumn>();
+
+	// names, types and properties repeat across elements, ids are unique
+	private final StringPool strings = new StringPool();
+
+	ModelDatabase convert(DatabaseModel databaseModel) {
+		List<ModelTable> modelTables = new ArrayList<ModelTable>();
+		for (Table table : databaseModel.getTables()) {
+			ModelTable modelTable = convertTable(table);
+			tables.put(table, modelTable);
+			modelTables.add(modelTable);
+		}
+
+		List<ModelView> modelViews = new ArrayList<ModelView>();
+		for (View view : databaseModel.getViews()) {
+			modelViews.add(convertView(view));
+		}
+
+		List<ModelReference> modelReferences = new ArrayList<ModelReference>();
+		for (Reference reference : databaseModel.getReferences()) {
+			modelReferences.add(convertReference(reference));
+		}
+
+		List<ModelSequence> modelSequences = new ArrayList<ModelSequence>();
+		for (Sequence sequence : databaseModel.getSequences()) {
+			modelSequences.add(new ModelSequence(sequence.getId(), strings.get(sequence.getName()),
+					convertNumber(sequence.getStartWith()), convertNumber(sequence.getIncrementBy()),
+					sequence.isHasMinValue() ? convertNumber(sequence.getMinValue()) : null,
+					sequence.isHasMaxValue() ? convertNumber(sequence.getMaxValue()) : null,
+					sequence.isCycle(), sequence.isHasCache() ? convertNumber(sequence.getCache()) : null,
+					convertProperties(sequence.getProperties())));
+		}
+
+		return new ModelDatabase(databaseModel.getVersionId(), modelTables, modelViews, modelReferences, modelSequences);
+	}
+
+	private ModelTable convertTable(Table table) {
+		List<ModelColumn> modelColumns = new ArrayList<ModelColumn>();
+		List<ModelColumn> pkColumns = new ArrayList<ModelColumn>();
+		for (Column column : table.getColumns()) {
+			ModelColumn modelColumn = new ModelColumn(column.getId(), strings.get(column.getName()),
+					strings.get(column.getType()), strings.get(column.getDescription()), column.isNullable(),
+					strings.get(column.getDefaultValue()), strings.get(column.getCheckExpression()),
+					convertProperties(column.getProperties()));
+			columns.put(column, modelColumn);
+			modelColumns.add(modelColumn);
+
+			if (column.isPK()) {
+				pkColumns.add(modelColumn);
+			}
+		}
+
+		List<ModelProperty> properties = convertProperties(table.getProperties());
+
+		ModelKey primaryKey = null;
+		if (!pkColumns.isEmpty()) {
+			String pkName = null;
+			for (ModelProperty property : properties) {
+				if (property.getName().equalsIgnoreCase(PK_ADDITIONAL_PROPERTY_NAME)) {
+					pkName = property.getValue();
+					break;
+				}
+			}
+			primaryKey = new ModelKey(null, pkName, pkColumns, Collections.<ModelProperty> emptyList());
+		}
+
+		List<ModelKey> alternateKeys = new ArrayList<ModelKey>();
+		for (AlternateKey alternateKey : table.getAlternateKeys()) {
+			List<ModelColumn> akColumns = new ArrayList<ModelColumn>();
+			for (AlternateKeyColumn alternateKeyColumn : alternateKey.getColumns()) {
+				akColumns.add(columns.get(alternateKeyColumn.getColumn()));
+			}
+			alternateKeys.add(new ModelKey(alternateKey.getId(), strings.get(alternateKey.getName()), akColumns,
+					convertProperties(alternateKey.getProperties())));
+		}
+
+		List<ModelTableIndex> indexes = new ArrayList<ModelTableIndex>();
+		for (Index index : table.getIndexes()) {
+			List<ModelIndexColumn> indexColumns = new ArrayList<ModelIndexColumn>();
+			for (IndexColumn indexColumn : index.getColumns()) {
+				indexColumns.add(new ModelIndexColumn(columns.get(indexColumn.getColumn()), indexColumn.isAscending()));
+			}
+			indexes.add(new ModelTableIndex(index.getId(), strings.get(index.getName()), indexColumns,
+					convertProperties(index.getProperties())));
+		}
+
+		List<ModelCheck> checks = new ArrayList<ModelCheck>();
+		for (TableCheck tableCheck : table.getTableChecks()) {
+			checks.add(new ModelCheck(tableCheck.getId(), strings.get(tableCheck.getName()),
+					strings.get(tableCheck.getCheckExpression()), convertProperties(tableCheck.getProperties())));
+		}
+
+		return new ModelTable(table.getId(), strings.get(table.getName()), strings.get(table.getDescription()),
+				modelColumns, primaryKey, alternateKeys, indexes, checks, properties);
+	}
+
+	private ModelView convertView(View view) {
+		List<ModelViewColumn> modelColumns = new ArrayList<ModelViewColumn>();
+		for (ViewColumn column : view.getViewColumns()) {
+			modelColumns.add(new ModelViewColumn(column.getId(), strings.get(column.getName()),
+					strings.get(column.getType()), strings.get(column.getDescription()),
+					convertProperties(column.getProperties())));
+		}
+
+		return new ModelView(view.getId(), strings.get(view.getName()), strings.get(view.getDescription()),
+				modelColumns, convertProperties(view.getProperties()));
+	}
+
+	private ModelReference convertReference(Reference reference) {
+		List<ModelReferenceColumn> referenceColumns = new ArrayList<ModelReferenceColumn>();
+		for (ReferenceColumn referenceColumn : reference.getReferenceColumns()) {
+			referenceColumns.add(new ModelReferenceColumn(columns.get(referenceColumn.getPKColumn()),
+					columns.get(referenceColumn.getFKColumn())));
+		}
+
+		return new ModelReference(reference.getId(), strings.get(reference.getName()),
+				tables.get(reference.getPKTable()), tables.get(reference.getFKTable()), referenceColumns,
+				convertProperties(reference.getProperties()));
+	}
+
+	/**
+	 * @return the pooled number of a sequence, <code>null</code> if empty
+	 */
+	private String convertNumber(String value) {
+		return StringUtils.isEmpty(value) ? null : strings.get(value);
+	}
+
+	private List<ModelProperty> convertProperties(List<Property> properties) {
+		List<ModelProperty> result = new ArrayList<ModelProperty>(properties.size());
+		for (Property property : properties) {
+			result.add(new ModelProperty(strings.get(property.getName()), strings.get(property.getValue())));
+		}
+		return result;
+	}
+}
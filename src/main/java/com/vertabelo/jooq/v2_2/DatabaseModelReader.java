@@ -0,0 +1,188 @@
+package com.vertabelo.jooq.v2_2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.vertabelo.jooq.AbstractStAXModelReader;
+import com.vertabelo.jooq.model.ModelCheck;
+import com.vertabelo.jooq.model.ModelColumn;
+import com.vertabelo.jooq.model.ModelKey;
+import com.vertabelo.jooq.model.ModelProperty;
+import com.vertabelo.jooq.model.ModelTable;
+import com.vertabelo.jooq.model.ModelTableIndex;
+
+/**
+ * Reads a model (XML version v2.1 and v2.2) without JAXB, see
+ * {@link DatabaseModelConverter} for the JAXB based equivalent.
+ */
+class DatabaseModelReader extends AbstractStAXModelReader {
+
+	private static final String PK_ADDITIONAL_PROPERTY_NAME = "Primary key name";
+
+	@Override
+	protected ModelTable readTable(XMLStreamReader reader) throws XMLStreamException {
+		String id = id(reader);
+		String name = null;
+		String description = null;
+		List<ModelColumn> modelColumns = new ArrayList<ModelColumn>();
+		List<ModelColumn> pkColumns = new ArrayList<ModelColumn>();
+		List<PendingKey> alternateKeys = new ArrayList<PendingKey>();
+		List<PendingIndex> indexes = new ArrayList<PendingIndex>();
+		List<ModelCheck> checks = new ArrayList<ModelCheck>();
+		List<ModelProperty> properties = null;
+
+		while (nextElement(reader)) {
+			switch (reader.getLocalName()) {
+			case "Name":
+				name = text(reader);
+				break;
+			case "Description":
+				description = text(reader);
+				break;
+			case "Columns":
+				while (nextElement(reader)) {
+					if ("Column".equals(reader.getLocalName())) {
+						readColumn(reader, modelColumns, pkColumns);
+					} else {
+						skip(reader);
+					}
+				}
+				break;
+			case "AlternateKeys":
+				while (nextElement(reader)) {
+					if ("AlternateKey".equals(reader.getLocalName())) {
+						alternateKeys.add(readAlternateKey(reader));
+					} else {
+						skip(reader);
+					}
+				}
+				break;
+			case "Indexes":
+				while (nextElement(reader)) {
+					if ("Index".equals(reader.getLocalName())) {
+						indexes.add(readIndex(reader));
+					} else {
+						skip(reader);
+					}
+				}
+				break;
+			case "TableChecks":
+				while (nextElement(reader)) {
+					if ("TableCheck".equals(reader.getLocalName())) {
+						checks.add(readTableCheck(reader));
+					} else {
+						skip(reader);
+					}
+				}
+				break;
+			case "Properties":
+				properties = readProperties(reader);
+				break;
+			default:
+				skip(reader);
+			}
+		}
+		properties = properties(properties);
+
+		ModelKey primaryKey = null;
+		if (!pkColumns.isEmpty()) {
+			String pkName = null;
+			for (ModelProperty property : properties) {
+				if (property.getName().equalsIgnoreCase(PK_ADDITIONAL_PROPERTY_NAME)) {
+					pkName = property.getValue();
+					break;
+				}
+			}
+			primaryKey = new ModelKey(null, pkName, pkColumns, Collections.<ModelProperty> emptyList());
+		}
+
+		List<ModelKey> modelAlternateKeys = new ArrayList<ModelKey>(alternateKeys.size());
+		for (PendingKey key : alternateKeys) {
+			modelAlternateKeys.add(key.resolve());
+		}
+
+		List<ModelTableIndex> modelIndexes = new ArrayList<ModelTableIndex>(indexes.size());
+		for (PendingIndex index : indexes) {
+			modelIndexes.add(index.resolve());
+		}
+
+		return new ModelTable(id, name, description, modelColumns, primaryKey, modelAlternateKeys, modelIndexes,
+				checks, properties);
+	}
+
+	/**
+	 * In v2.2 each <code>Columns</code> element of an index is one index
+	 * column.
+	 */
+	@Override
+	protected void readIndexColumns(XMLStreamReader reader, PendingIndex index) throws XMLStreamException {
+		readIndexColumn(reader, index);
+	}
+
+	@Override
+	protected boolean isMinMaxValueFlagged() {
+		return true;
+	}
+
+	@Override
+	protected String getCacheFlagName() {
+		return "HasCache";
+	}
+
+	private void readColumn(XMLStreamReader reader, List<ModelColumn> modelColumns, List<ModelColumn> pkColumns)
+			throws XMLStreamException {
+		String id = id(reader);
+		String name = null;
+		String type = null;
+		String description = null;
+		boolean nullable = false;
+		boolean pk = false;
+		String defaultValue = null;
+		String checkExpression = null;
+		List<ModelProperty> properties = null;
+
+		while (nextElement(reader)) {
+			switch (reader.getLocalName()) {
+			case "Name":
+				name = text(reader);
+				break;
+			case "Type":
+				type = text(reader);
+				break;
+			case "Description":
+				description = text(reader);
+				break;
+			case "Nullable":
+				nullable = bool(reader);
+				break;
+			case "PK":
+				pk = bool(reader);
+				break;
+			case "DefaultValue":
+				defaultValue = text(reader);
+				break;
+			case "CheckExpression":
+				checkExpression = text(reader);
+				break;
+			case "Properties":
+				properties = readProperties(reader);
+				break;
+			default:
+				skip(reader);
+			}
+		}
+
+		ModelColumn result = new ModelColumn(id, name, type, description, nullable, defaultValue, checkExpression,
+				properties(properties));
+		columns.put(id, result);
+		modelColumns.add(result);
+
+		if (pk) {
+			pkColumns.add(result);
+		}
+	}
+}
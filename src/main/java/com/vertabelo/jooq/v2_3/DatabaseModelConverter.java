@@ -0,0 +1,203 @@
+package com.vertabelo.jooq.v2_3;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.bind.JAXBElement;
+
+import org.jooq.tools.StringUtils;
+
+import com.vertabelo.jooq.jaxb.v2_3.AlternateKey;
+import com.vertabelo.jooq.jaxb.v2_3.Column;
+import com.vertabelo.jooq.jaxb.v2_3.DatabaseModel;
+import com.vertabelo.jooq.jaxb.v2_3.Index;
+import com.vertabelo.jooq.jaxb.v2_3.IndexColumn;
+import com.vertabelo.jooq.jaxb.v2_3.PrimaryKey;
+import com.vertabelo.jooq.jaxb.v2_3.Properties;
+import com.vertabelo.jooq.jaxb.v2_3.Property;
+import com.vertabelo.jooq.jaxb.v2_3.Reference;
+import com.vertabelo.jooq.jaxb.v2_3.ReferenceColumn;
+import com.vertabelo.jooq.jaxb.v2_3.Sequence;
+import com.vertabelo.jooq.jaxb.v2_3.Table;
+import com.vertabelo.jooq.jaxb.v2_3.TableCheck;
+import com.vertabelo.jooq.jaxb.v2_3.View;
+import com.vertabelo.jooq.jaxb.v2_3.ViewColumn;
+import com.vertabelo.jooq.model.ModelCheck;
+import com.vertabelo.jooq.model.ModelColumn;
+import com.vertabelo.jooq.model.ModelDatabase;
+import com.vertabelo.jooq.model.ModelIndexColumn;
+import com.vertabelo.jooq.model.ModelKey;
+import com.vertabelo.jooq.model.ModelProperty;
+import com.vertabelo.jooq.model.ModelReference;
+import com.vertabelo.jooq.model.ModelReferenceColumn;
+import com.vertabelo.jooq.model.ModelSequence;
+import com.vertabelo.jooq.model.ModelTable;
+import com.vertabelo.jooq.model.ModelTableIndex;
+import com.vertabelo.jooq.model.ModelView;
+import com.vertabelo.jooq.model.ModelViewColumn;
+import com.vertabelo.jooq.model.StringPool;
+
+/**
+ * Converts an unmarshalled model (XML version v2.3) to a {@link ModelDatabase}.
+ */
+class DatabaseModelConverter {
+
+	// IDREFs are resolved to the referenced JAXB objects
+	private final Map<Object, ModelTable> tables = new IdentityHashMap<Object, ModelTable>();
+	private final Map<Object, ModelColumn> columns = new IdentityHashMap<Object, ModelColumn>();
+
+	// names, types and properties repeat across elements, ids are unique
+	private final StringPool strings = new StringPool();
+
+	ModelDatabase convert(DatabaseModel databaseModel) {
+		List<ModelTable> modelTables = new ArrayList<ModelTable>();
+		if (databaseModel.getTables() != null) {
+			for (Table table : databaseModel.getTables().getTable()) {
+				ModelTable modelTable = convertTable(table);
+				tables.put(table, modelTable);
+				modelTables.add(modelTable);
+			}
+		}
+
+		List<ModelView> modelViews = new ArrayList<ModelView>();
+		if (databaseModel.getViews() != null) {
+			for (View view : databaseModel.getViews().getView()) {
+				modelViews.add(convertView(view));
+			}
+		}
+
+		List<ModelReference> modelReferences = new ArrayList<ModelReference>();
+		if (databaseModel.getReferences() != null) {
+			for (Reference reference : databaseModel.getReferences().getReference()) {
+				modelReferences.add(convertReference(reference));
+			}
+		}
+
+		List<ModelSequence> modelSequences = new ArrayList<ModelSequence>();
+		if (databaseModel.getSequences() != null) {
+			for (Sequence sequence : databaseModel.getSequences().getSequence()) {
+				modelSequences.add(new ModelSequence(sequence.getId(), strings.get(sequence.getName()),
+						convertNumber(sequence.getStartWith()), convertNumber(sequence.getIncrementBy()),
+						convertNumber(sequence.getMinValue()), convertNumber(sequence.getMaxValue()),
+						sequence.isCycle(), sequence.isUseCache() ? convertNumber(sequence.getCache()) : null,
+						convertProperties(sequence.getProperties())));
+			}
+		}
+
+		return new ModelDatabase(databaseModel.getVersionId(), modelTables, modelViews, modelReferences, modelSequences);
+	}
+
+	private ModelTable convertTable(Table table) {
+		List<ModelColumn> modelColumns = new ArrayList<ModelColumn>();
+		if (table.getColumns() != null) {
+			for (Column column : table.getColumns().getColumn()) {
+				ModelColumn modelColumn = new ModelColumn(column.getId(), strings.get(column.getName()),
+						strings.get(column.getType()), strings.get(column.getDescription()), column.isNullable(),
+						strings.get(column.getDefaultValue()), strings.get(column.getCheckExpression()),
+						convertProperties(column.getProperties()));
+				columns.put(column, modelColumn);
+				modelColumns.add(modelColumn);
+			}
+		}
+
+		ModelKey primaryKey = null;
+		PrimaryKey pk = table.getPrimaryKey();
+		if (pk != null) {
+			primaryKey = new ModelKey(null, strings.get(pk.getName()),
+					convertKeyColumns(pk.getColumns() != null ? pk.getColumns().getColumn() : null),
+					Collections.<ModelProperty> emptyList());
+		}
+
+		List<ModelKey> alternateKeys = new ArrayList<ModelKey>();
+		if (table.getAlternateKeys() != null) {
+			for (AlternateKey alternateKey : table.getAlternateKeys().getAlternateKey()) {
+				alternateKeys.add(new ModelKey(alternateKey.getId(), strings.get(alternateKey.getName()),
+						convertKeyColumns(alternateKey.getColumns() != null ? alternateKey.getColumns().getColumn() : null),
+						convertProperties(alternateKey.getProperties())));
+			}
+		}
+
+		List<ModelTableIndex> indexes = new ArrayList<ModelTableIndex>();
+		if (table.getIndexes() != null) {
+			for (Index index : table.getIndexes().getIndex()) {
+				List<ModelIndexColumn> indexColumns = new ArrayList<ModelIndexColumn>();
+				if (index.getColumns() != null) {
+					for (IndexColumn indexColumn : index.getColumns().getColumn()) {
+						indexColumns.add(new ModelIndexColumn(columns.get(indexColumn.getColumn()), indexColumn.isAscending()));
+					}
+				}
+				indexes.add(new ModelTableIndex(index.getId(), strings.get(index.getName()), indexColumns,
+						convertProperties(index.getProperties())));
+			}
+		}
+
+		List<ModelCheck> checks = new ArrayList<ModelCheck>();
+		if (table.getTableChecks() != null) {
+			for (TableCheck tableCheck : table.getTableChecks().getTableCheck()) {
+				checks.add(new ModelCheck(tableCheck.getId(), strings.get(tableCheck.getName()),
+						strings.get(tableCheck.getCheckExpression()), convertProperties(tableCheck.getProperties())));
+			}
+		}
+
+		return new ModelTable(table.getId(), strings.get(table.getName()), strings.get(table.getDescription()),
+				modelColumns, primaryKey, alternateKeys, indexes, checks, convertProperties(table.getProperties()));
+	}
+
+	private List<ModelColumn> convertKeyColumns(List<JAXBElement<Object>> keyColumns) {
+		List<ModelColumn> result = new ArrayList<ModelColumn>();
+		if (keyColumns != null) {
+			for (JAXBElement<Object> o : keyColumns) {
+				result.add(columns.get(o.getValue()));
+			}
+		}
+		return result;
+	}
+
+	private ModelView convertView(View view) {
+		List<ModelViewColumn> modelColumns = new ArrayList<ModelViewColumn>();
+		if (view.getViewColumns() != null) {
+			for (ViewColumn column : view.getViewColumns().getViewColumn()) {
+				modelColumns.add(new ModelViewColumn(column.getId(), strings.get(column.getName()),
+						strings.get(column.getType()), strings.get(column.getDescription()),
+						convertProperties(column.getProperties())));
+			}
+		}
+
+		return new ModelView(view.getId(), strings.get(view.getName()), strings.get(view.getDescription()),
+				modelColumns, convertProperties(view.getProperties()));
+	}
+
+	private ModelReference convertReference(Reference reference) {
+		List<ModelReferenceColumn> referenceColumns = new ArrayList<ModelReferenceColumn>();
+		if (reference.getReferenceColumns() != null) {
+			for (ReferenceColumn referenceColumn : reference.getReferenceColumns().getReferenceColumn()) {
+				referenceColumns.add(new ModelReferenceColumn(columns.get(referenceColumn.getPKColumn()),
+						columns.get(referenceColumn.getFKColumn())));
+			}
+		}
+
+		return new ModelReference(reference.getId(), strings.get(reference.getName()),
+				tables.get(reference.getPKTable()), tables.get(reference.getFKTable()), referenceColumns,
+				convertProperties(reference.getProperties()));
+	}
+
+	/**
+	 * @return the pooled number of a sequence, <code>null</code> if empty
+	 */
+	private String convertNumber(String value) {
+		return StringUtils.isEmpty(value) ? null : strings.get(value);
+	}
+
+	private List<ModelProperty> convertProperties(Properties properties) {
+		List<ModelProperty> result = new ArrayList<ModelProperty>();
+		if (properties != null) {
+			for (Property property : properties.getProperty()) {
+				result.add(new ModelProperty(strings.get(property.getName()), strings.get(property.getValue())));
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,163 @@
+package com.vertabelo.jooq.v2_3;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.vertabelo.jooq.AbstractStAXModelReader;
+import com.vertabelo.jooq.model.ModelCheck;
+import com.vertabelo.jooq.model.ModelColumn;
+import com.vertabelo.jooq.model.ModelKey;
+import com.vertabelo.jooq.model.ModelProperty;
+import com.vertabelo.jooq.model.ModelTable;
+import com.vertabelo.jooq.model.ModelTableIndex;
+
+/**
+ * Reads a model (XML version v2.3) without JAXB, see
+ * {@link DatabaseModelConverter} for the JAXB based equivalent.
+ */
+class DatabaseModelReader extends AbstractStAXModelReader {
+
+	@Override
+	protected ModelTable readTable(XMLStreamReader reader) throws XMLStreamException {
+		String id = id(reader);
+		String name = null;
+		String description = null;
+		List<ModelColumn> modelColumns = new ArrayList<ModelColumn>();
+		String pkName = null;
+		List<String> pkColumns = null;
+		List<PendingKey> alternateKeys = new ArrayList<PendingKey>();
+		List<PendingIndex> indexes = new ArrayList<PendingIndex>();
+		List<ModelCheck> checks = new ArrayList<ModelCheck>();
+		List<ModelProperty> properties = null;
+
+		while (nextElement(reader)) {
+			switch (reader.getLocalName()) {
+			case "Name":
+				name = text(reader);
+				break;
+			case "Description":
+				description = text(reader);
+				break;
+			case "Columns":
+				while (nextElement(reader)) {
+					if ("Column".equals(reader.getLocalName())) {
+						modelColumns.add(readColumn(reader));
+					} else {
+						skip(reader);
+					}
+				}
+				break;
+			case "PrimaryKey":
+				pkColumns = new ArrayList<String>();
+				while (nextElement(reader)) {
+					if ("Name".equals(reader.getLocalName())) {
+						pkName = text(reader);
+					} else if ("Columns".equals(reader.getLocalName())) {
+						pkColumns.addAll(readColumnIds(reader));
+					} else {
+						skip(reader);
+					}
+				}
+				break;
+			case "AlternateKeys":
+				while (nextElement(reader)) {
+					if ("AlternateKey".equals(reader.getLocalName())) {
+						alternateKeys.add(readAlternateKey(reader));
+					} else {
+						skip(reader);
+					}
+				}
+				break;
+			case "Indexes":
+				while (nextElement(reader)) {
+					if ("Index".equals(reader.getLocalName())) {
+						indexes.add(readIndex(reader));
+					} else {
+						skip(reader);
+					}
+				}
+				break;
+			case "TableChecks":
+				while (nextElement(reader)) {
+					if ("TableCheck".equals(reader.getLocalName())) {
+						checks.add(readTableCheck(reader));
+					} else {
+						skip(reader);
+					}
+				}
+				break;
+			case "Properties":
+				properties = readProperties(reader);
+				break;
+			default:
+				skip(reader);
+			}
+		}
+
+		ModelKey primaryKey = null;
+		if (pkColumns != null) {
+			primaryKey = new ModelKey(null, pkName, resolveColumns(pkColumns), Collections.<ModelProperty> emptyList());
+		}
+
+		List<ModelKey> modelAlternateKeys = new ArrayList<ModelKey>(alternateKeys.size());
+		for (PendingKey key : alternateKeys) {
+			modelAlternateKeys.add(key.resolve());
+		}
+
+		List<ModelTableIndex> modelIndexes = new ArrayList<ModelTableIndex>(indexes.size());
+		for (PendingIndex index : indexes) {
+			modelIndexes.add(index.resolve());
+		}
+
+		return new ModelTable(id, name, description, modelColumns, primaryKey, modelAlternateKeys, modelIndexes,
+				checks, properties(properties));
+	}
+
+	private ModelColumn readColumn(XMLStreamReader reader) throws XMLStreamException {
+		String id = id(reader);
+		String name = null;
+		String type = null;
+		String description = null;
+		boolean nullable = false;
+		String defaultValue = null;
+		String checkExpression = null;
+		List<ModelProperty> properties = null;
+
+		while (nextElement(reader)) {
+			switch (reader.getLocalName()) {
+			case "Name":
+				name = text(reader);
+				break;
+			case "Type":
+				type = text(reader);
+				break;
+			case "Description":
+				description = text(reader);
+				break;
+			case "Nullable":
+				nullable = bool(reader);
+				break;
+			case "DefaultValue":
+				defaultValue = text(reader);
+				break;
+			case "CheckExpression":
+				checkExpression = text(reader);
+				break;
+			case "Properties":
+				properties = readProperties(reader);
+				break;
+			default:
+				skip(reader);
+			}
+		}
+
+		ModelColumn result = new ModelColumn(id, name, type, description, nullable, defaultValue, checkExpression,
+				properties(properties));
+		columns.put(id, result);
+		return result;
+	}
+}
@@ -0,0 +1,306 @@
+package com.vertabelo.jooq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.jooq.meta.ForeignKeyDefinition;
+import org.jooq.meta.IndexColumnDefinition;
+import org.jooq.meta.IndexDefinition;
+import org.jooq.meta.SequenceDefinition;
+import org.jooq.meta.TableDefinition;
+import org.jooq.meta.jaxb.SchemaMappingType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Definitions generated from a model, read the way the code generator reads
+ * them.
+ */
+public class AbstractVertabeloDatabaseTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void fingerprintsAreStoredOnClose() {
+		File fingerprints = new File(folder.getRoot(), "fingerprints.properties");
+		AbstractVertabeloDatabase database = database(new com.vertabelo.jooq.v2_3.VertabeloDatabase(),
+				"fingerprints-file", fingerprints.getPath());
+
+		for (TableDefinition table : database.getTables(database.getSchema("crm"))) {
+			table.getColumns();
+		}
+		assertFalse(fingerprints.exists());
+
+		database.close();
+		assertTrue(fingerprints.exists());
+	}
+
+	@Test
+	public void fingerprintsAreNotStoredAfterFailure() {
+		File fingerprints = new File(folder.getRoot(), "fingerprints.properties");
+		AbstractVertabeloDatabase database = database(new com.vertabelo.jooq.v2_3.VertabeloDatabase() {
+			@Override
+			protected synchronized DataTypeCache getDataTypeCache() {
+				throw new IllegalStateException("No data types");
+			}
+		}, "fingerprints-file", fingerprints.getPath());
+
+		// jOOQ logs the error and goes on without the columns
+		database.getTables(database.getSchema("crm")).get(0).getColumns();
+
+		database.close();
+		assertFalse(fingerprints.exists());
+	}
+
+	@Test
+	public void foreignKeysReferenceKeysInDeclaredOrder() {
+		AbstractVertabeloDatabase database = database(new com.vertabelo.jooq.v2_3.VertabeloDatabase());
+
+		TableDefinition orders = database.getTable(database.getSchema("crm"), "orders");
+		Map<String, String> keys = new TreeMap<String, String>();
+		for (ForeignKeyDefinition foreignKey : database.getRelations().getForeignKeys(orders)) {
+			keys.put(foreignKey.getName(), foreignKey.getReferencedKey().getName());
+		}
+
+		// the reversed reference lists the key columns in another order
+		assertEquals("{orders_customer=customer_pk, orders_customer_code=customer_ak_region_code}", keys.toString());
+		database.close();
+	}
+
+	@Test
+	public void indexColumnsAreFoundByName() {
+		AbstractVertabeloDatabase database = database(new com.vertabelo.jooq.v2_3.VertabeloDatabase());
+		database.setIncludeExcludeColumns(true);
+		// the column in front of the indexed ones
+		database.setExcludes(new String[] { "crm\\.customer\\.email" });
+
+		TableDefinition customer = database.getTable(database.getSchema("crm"), "customer");
+		List<String> columns = new ArrayList<String>();
+		for (IndexDefinition index : database.getIndexes(customer)) {
+			for (IndexColumnDefinition column : index.getIndexColumns()) {
+				columns.add(index.getName() + "." + column.getName() + " " + column.getSortOrder());
+			}
+		}
+
+		assertEquals(Arrays.asList("customer_idx_region.region ASC", "customer_idx_region.balance DESC"), columns);
+		database.close();
+	}
+
+	@Test(timeout = 60000)
+	public void foreignKeysAreCollectedInParallel() {
+		AbstractVertabeloDatabase database = database(new com.vertabelo.jooq.v2_3.VertabeloDatabase(),
+				"parallel-relations", "true", "parallelism", "2");
+
+		TableDefinition orders = database.getTable(database.getSchema("crm"), "orders");
+		Map<String, String> keys = new TreeMap<String, String>();
+		for (ForeignKeyDefinition foreignKey : database.getRelations().getForeignKeys(orders)) {
+			keys.put(foreignKey.getName(), foreignKey.getReferencedKey().getName());
+		}
+
+		assertEquals("{orders_customer=customer_pk, orders_customer_code=customer_ak_region_code}", keys.toString());
+		database.close();
+	}
+
+	@Test
+	public void excludedSequencesAreNotGenerated() {
+		AbstractVertabeloDatabase database = database(new com.vertabelo.jooq.v2_3.VertabeloDatabase());
+		database.setExcludes(new String[] { "crm\\.order_seq" });
+
+		List<String> sequences = new ArrayList<String>();
+		for (SequenceDefinition sequence : database.getSequences()) {
+			sequences.add(sequence.getQualifiedName());
+		}
+
+		assertEquals(Arrays.asList("global_seq"), sequences);
+		assertEquals(1, database.generatedModel().getSequences().size());
+		database.close();
+	}
+
+	@Test
+	public void sequenceTypeIsTheNarrowestHoldingBothBounds() throws IOException {
+		String model = sequenceModel("2.3",
+				sequence("smallint_seq", "MinValue", "-32768", "MaxValue", "32767"),
+				sequence("above_smallint_seq", "MinValue", "1", "MaxValue", "32768"),
+				sequence("below_smallint_seq", "MinValue", "-32769", "MaxValue", "1"),
+				sequence("integer_seq", "MinValue", "-2147483648", "MaxValue", "2147483647"),
+				sequence("above_integer_seq", "MinValue", "1", "MaxValue", "2147483648"),
+				sequence("bigint_seq", "MinValue", "-9223372036854775808", "MaxValue", "9223372036854775807"),
+				sequence("above_bigint_seq", "MinValue", "1", "MaxValue", "9223372036854775808"),
+				sequence("below_bigint_seq", "MinValue", "-9223372036854775809", "MaxValue", "1"));
+
+		for (String binder : BINDERS) {
+			assertEquals(binder, "{above_bigint_seq=NUMERIC(19), above_integer_seq=BIGINT, "
+					+ "above_smallint_seq=INTEGER, below_bigint_seq=NUMERIC(19), below_smallint_seq=INTEGER, "
+					+ "bigint_seq=BIGINT, integer_seq=INTEGER, smallint_seq=SMALLINT}",
+					sequenceTypes(model, binder).toString());
+		}
+	}
+
+	@Test
+	public void sequenceWithOneBoundIsBigint() throws IOException {
+		String model = sequenceModel("2.3",
+				sequence("min_seq", "MinValue", "1", "MaxValue", ""),
+				sequence("max_seq", "MinValue", "", "MaxValue", "100"));
+
+		for (String binder : BINDERS) {
+			assertEquals(binder, "{max_seq=BIGINT, min_seq=BIGINT}", sequenceTypes(model, binder).toString());
+		}
+	}
+
+	@Test
+	public void sequenceBoundsAndCacheNeedTheirFlagsInVersion22() throws IOException {
+		String model = sequenceModel("2.2",
+				sequence("flagged_seq", "MinValue", "1", "HasMinValue", "true", "MaxValue", "100",
+						"HasMaxValue", "true", "Cache", "20", "HasCache", "true"),
+				sequence("unflagged_seq", "MinValue", "1", "HasMinValue", "false", "MaxValue", "100",
+						"HasMaxValue", "false", "Cache", "20", "HasCache", "false"),
+				// UseCache is the flag of v2.3
+				sequence("other_flag_seq", "MinValue", "1", "MaxValue", "100", "Cache", "20", "UseCache", "true"));
+
+		for (String binder : BINDERS) {
+			assertEquals(binder, "{flagged_seq=SMALLINT 1..100 cache 20, other_flag_seq=BIGINT null..null cache null, "
+					+ "unflagged_seq=BIGINT null..null cache null}", sequences(model, binder).toString());
+		}
+	}
+
+	@Test
+	public void sequenceCacheNeedsUseCacheInVersion23() throws IOException {
+		String model = sequenceModel("2.3",
+				sequence("cached_seq", "MinValue", "1", "MaxValue", "100", "Cache", "20", "UseCache", "true"),
+				sequence("uncached_seq", "MinValue", "1", "MaxValue", "100", "Cache", "20", "UseCache", "false"),
+				// HasCache is the flag of v2.2
+				sequence("other_flag_seq", "MinValue", "1", "MaxValue", "100", "Cache", "20", "HasCache", "true"));
+
+		for (String binder : BINDERS) {
+			assertEquals(binder, "{cached_seq=SMALLINT 1..100 cache 20, other_flag_seq=SMALLINT 1..100 cache null, "
+					+ "uncached_seq=SMALLINT 1..100 cache null}", sequences(model, binder).toString());
+		}
+	}
+
+	@Test
+	public void emptySequenceValuesAreNotSet() throws IOException {
+		String model22 = sequenceModel("2.2", sequence("empty_seq", "MinValue", "", "HasMinValue", "true",
+				"MaxValue", "", "HasMaxValue", "true", "Cache", "", "HasCache", "true"));
+		String model23 = sequenceModel("2.3", sequence("empty_seq", "MinValue", "", "MaxValue", "",
+				"Cache", "", "UseCache", "true"));
+
+		for (String binder : BINDERS) {
+			assertEquals(binder, "{empty_seq=BIGINT null..null cache null}", sequences(model22, binder).toString());
+			assertEquals(binder, "{empty_seq=BIGINT null..null cache null}", sequences(model23, binder).toString());
+		}
+	}
+
+	/**
+	 * Configures a database like the code generator does, on the shop model
+	 * unless the properties name another model file.
+	 */
+	static <D extends AbstractVertabeloDatabase> D database(D database, String... properties) {
+		Properties result = new Properties();
+		result.setProperty("dialect", "POSTGRES");
+		result.setProperty("xml-file", resource("shop-2.3.xml").getPath());
+		for (int i = 0; i < properties.length; i += 2) {
+			result.setProperty(properties[i], properties[i + 1]);
+		}
+
+		database.setProperties(result);
+		database.setConfiguredSchemata(Arrays.asList(new SchemaMappingType().withInputSchema("")));
+		database.setIncludes(new String[] { ".*" });
+		database.setExcludes(new String[0]);
+		return database;
+	}
+
+	static File resource(String name) {
+		try {
+			return new File(AbstractVertabeloDatabaseTest.class.getResource(name).toURI());
+		} catch (URISyntaxException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static final String[] BINDERS = { "stax", "jaxb" };
+
+	/**
+	 * @return the type of each sequence, with the precision of a
+	 *         <code>NUMERIC</code>
+	 */
+	private Map<String, String> sequenceTypes(String model, String binder) {
+		Map<String, String> result = new TreeMap<String, String>();
+		AbstractVertabeloDatabase database = sequenceDatabase(model, binder);
+		for (SequenceDefinition sequence : database.getSequences()) {
+			String type = sequence.getType().getType();
+			result.put(sequence.getName(), "NUMERIC".equals(type) ? type + "(" + sequence.getType().getPrecision() + ")"
+					: type);
+		}
+		database.close();
+		return result;
+	}
+
+	private Map<String, String> sequences(String model, String binder) {
+		Map<String, String> result = new TreeMap<String, String>();
+		AbstractVertabeloDatabase database = sequenceDatabase(model, binder);
+		for (SequenceDefinition sequence : database.getSequences()) {
+			result.put(sequence.getName(), sequence.getType().getType() + " " + sequence.getMinvalue() + ".."
+					+ sequence.getMaxvalue() + " cache " + sequence.getCache());
+		}
+		database.close();
+		return result;
+	}
+
+	private AbstractVertabeloDatabase sequenceDatabase(String model, String binder) {
+		AbstractVertabeloDatabase database = model.startsWith("2.2:") ? new com.vertabelo.jooq.v2_2.VertabeloDatabase()
+				: new com.vertabelo.jooq.v2_3.VertabeloDatabase();
+		return database(database, "xml-file", model.substring(model.indexOf(':') + 1), "xml-binder", binder);
+	}
+
+	/**
+	 * Writes a model with one table, which puts the default schema into the
+	 * model, and the given sequences.
+	 *
+	 * @return the version and the path of the model file, joined by
+	 *         <code>:</code>
+	 */
+	private String sequenceModel(String version, String... sequences) throws IOException {
+		StringWriter out = new StringWriter();
+		new SyntheticModelGenerator().withVersion(version).withTables(1).write(out);
+		String model = out.toString().replace("<Sequences>\n</Sequences>",
+				"<Sequences>\n" + String.join("\n", sequences) + "\n</Sequences>");
+
+		File file = folder.newFile();
+		Files.write(file.toPath(), model.getBytes(StandardCharsets.UTF_8));
+		return version + ":" + file.getPath();
+	}
+
+	/**
+	 * @param elements names and values of the child elements, in the order
+	 *            of the model schema
+	 */
+	private static String sequence(String name, String... elements) {
+		StringBuilder result = new StringBuilder();
+		result.append("<Sequence Id=\"").append(name).append("\"><Name>").append(name).append("</Name>");
+		result.append("<Description></Description><StartWith>1</StartWith><IncrementBy>1</IncrementBy>");
+		for (int i = 0; i < elements.length; i += 2) {
+			result.append("<").append(elements[i]).append(">").append(elements[i + 1]);
+			result.append("</").append(elements[i]).append(">");
+		}
+		result.append("<Cycle>false</Cycle>");
+		result.append("<AdditionalSQLBefore></AdditionalSQLBefore><AdditionalSQLAfter></AdditionalSQLAfter>");
+		result.append("<Properties></Properties></Sequence>");
+		return result.toString();
+	}
+}
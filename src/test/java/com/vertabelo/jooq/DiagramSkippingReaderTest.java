@@ -0,0 +1,136 @@
+package com.vertabelo.jooq;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.Source;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.vertabelo.jooq.model.ModelDatabase;
+import com.vertabelo.jooq.model.ModelSnapshot;
+
+/**
+ * Models parsed with the diagram layout skipped are the same as models
+ * parsed whole.
+ */
+public class DiagramSkippingReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void diagramElementsAreSkipped() throws Exception {
+		byte[] xml = model("2.3");
+
+		Set<String> all = elementNames(XMLInputFactory.newInstance().createXMLStreamReader(new ByteArrayInputStream(xml)));
+		assertTrue(all.containsAll(DiagramSkippingReader.DIAGRAM_SECTIONS));
+		assertTrue(all.contains("TableDisplay") && all.contains("Note") && all.contains("Area"));
+
+		Set<String> skipped = elementNames(new DiagramSkippingReader(
+				XMLInputFactory.newInstance().createXMLStreamReader(new ByteArrayInputStream(xml))));
+		for (String name : new String[] { "TableDisplays", "TableDisplay", "ReferenceDisplay", "ControlPoint",
+				"Notes", "Note", "Areas", "Area", "Texts" }) {
+			assertFalse(name, skipped.contains(name));
+		}
+		assertTrue(skipped.contains("Table") && skipped.contains("Reference") && skipped.contains("Sequence"));
+	}
+
+	@Test
+	public void skippedModelEqualsWholeModel22() throws Exception {
+		assertSkippedModelEqualsWholeModel(new com.vertabelo.jooq.v2_2.VertabeloDatabase(), "2.2");
+	}
+
+	@Test
+	public void skippedModelEqualsWholeModel23() throws Exception {
+		assertSkippedModelEqualsWholeModel(new com.vertabelo.jooq.v2_3.VertabeloDatabase(), "2.3");
+	}
+
+	private void assertSkippedModelEqualsWholeModel(AbstractVertabeloDatabase database, String version) throws Exception {
+		File file = folder.newFile("model-" + version + ".xml");
+		Files.write(file.toPath(), model(version));
+
+		Properties properties = new Properties();
+		properties.setProperty("xml-file", file.getPath());
+		VertabeloModelLoader loader = new VertabeloModelLoader(properties);
+		loader.readXML();
+		database.setProperties(properties);
+
+		properties.setProperty("skip-diagram", "false");
+		byte[] whole = snapshot(database.readModel(loader));
+		byte[] wholeStAX = snapshot(read(database, loader, false));
+
+		properties.setProperty("skip-diagram", "true");
+		assertArrayEquals(whole, snapshot(database.readModel(loader)));
+		assertArrayEquals(whole, snapshot(read(database, loader, true)));
+		assertArrayEquals(whole, wholeStAX);
+	}
+
+	private static ModelDatabase read(AbstractVertabeloDatabase database, VertabeloModelLoader loader, boolean skipDiagram) {
+		AbstractStAXModelReader reader = database.createStAXModelReader(loader.getVertabeloXMLVersion());
+		reader.setSkipDiagram(skipDiagram);
+		Source source = loader.getVertabeloXMLSource();
+		try {
+			return reader.read(source);
+		} finally {
+			VertabeloModelLoader.close(source);
+		}
+	}
+
+	private static byte[] model(String version) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+			new SyntheticModelGenerator()
+				.withVersion(version)
+				.withTables(20)
+				.withViews(2)
+				.withSequences(2)
+				.withIndexesPerTable(1)
+				.withSchemas(2)
+				.write(writer);
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] snapshot(ModelDatabase model) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ModelSnapshot.write(model, out);
+		return out.toByteArray();
+	}
+
+	private static Set<String> elementNames(XMLStreamReader reader) throws XMLStreamException {
+		Set<String> result = new HashSet<String>();
+		int depth = 0;
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				result.add(reader.getLocalName());
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+		assertEquals(0, depth);
+		return result;
+	}
+}
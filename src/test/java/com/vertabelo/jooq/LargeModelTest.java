@@ -0,0 +1,43 @@
+package com.vertabelo.jooq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.vertabelo.jooq.model.ModelDatabase;
+
+/**
+ * A model of 100,000 tables loads in a small heap. The pom runs this test in
+ * a fork of its own with <code>-Xmx448m</code>, the model XML alone is about
+ * 340 MB.
+ */
+public class LargeModelTest {
+
+	private static final long MAX_HEAP = 448L << 20;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void largeModelLoadsInSmallHeap() throws Exception {
+		assertTrue("Heap larger than the one the pom sets: " + (Runtime.getRuntime().maxMemory() >> 20) + " MB",
+				Runtime.getRuntime().maxMemory() <= MAX_HEAP);
+
+		File file = folder.newFile("model.xml");
+		new SyntheticModelGenerator()
+			.withTables(100000)
+			.write(file.toPath());
+
+		AbstractVertabeloDatabase database = AbstractVertabeloDatabaseTest.database(
+				new com.vertabelo.jooq.v2_3.VertabeloDatabase(), "xml-file", file.getPath());
+		ModelDatabase model = database.generatedModel();
+
+		assertEquals(100000, model.getTables().size());
+		database.close();
+	}
+}
@@ -0,0 +1,598 @@
+package com.vertabelo.jooq;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Writes synthetic Vertabelo models of a configurable size, XML version 2.2 or
+ * 2.3.
+ *
+ * The same settings and seed always give the same file. Models are written as
+ * a stream, so even 100,000 tables need little memory.
+ *
+ * Each table has an integer primary key on its first column. Alternate keys
+ * cover two columns each, foreign keys point to earlier tables, either to the
+ * primary key or, composite, to the first alternate key. Tables, views and
+ * sequences are spread over schemas with the <code>schema</code> additional
+ * property.
+ *
+ * The generator can be run from the command line with
+ * <code>key=value</code> settings followed by the output file, e.g.
+ * <code>version=2.2 tables=10000 seed=7 model.xml</code>.
+ */
+public class SyntheticModelGenerator {
+
+	private static final String[] TYPES = { "int", "bigint", "smallint", "varchar(255)", "varchar(64)", "char(2)",
+			"decimal(12,2)", "timestamp", "date", "text", "boolean" };
+
+	private long seed = 1;
+	private String version = "2.3";
+	private int tables = 100;
+	private int columnsPerTable = 8;
+	private int alternateKeysPerTable = 1;
+	private int foreignKeysPerTable = 1;
+	private double compositeForeignKeyRatio = 0.3;
+	private int checksPerTable = 1;
+	private int indexesPerTable = 0;
+	private int views = 0;
+	private int columnsPerView = 4;
+	private int sequences = 0;
+	private int schemas = 1;
+	private boolean displays = true;
+
+	public SyntheticModelGenerator withSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	/**
+	 * @param version Vertabelo XML version, 2.2 or 2.3
+	 */
+	public SyntheticModelGenerator withVersion(String version) {
+		if (!"2.2".equals(version) && !"2.3".equals(version)) {
+			throw new IllegalArgumentException("Unsupported Vertabelo XML version: " + version);
+		}
+		this.version = version;
+		return this;
+	}
+
+	public SyntheticModelGenerator withTables(int tables) {
+		this.tables = tables;
+		return this;
+	}
+
+	/**
+	 * @param columnsPerTable number of columns, at least one for the primary
+	 *            key
+	 */
+	public SyntheticModelGenerator withColumnsPerTable(int columnsPerTable) {
+		this.columnsPerTable = Math.max(1, columnsPerTable);
+		return this;
+	}
+
+	/**
+	 * @param alternateKeysPerTable number of two column alternate keys, as
+	 *            many as the columns of a table allow
+	 */
+	public SyntheticModelGenerator withAlternateKeysPerTable(int alternateKeysPerTable) {
+		this.alternateKeysPerTable = alternateKeysPerTable;
+		return this;
+	}
+
+	/**
+	 * @param foreignKeysPerTable number of foreign keys of all tables but the
+	 *            first
+	 */
+	public SyntheticModelGenerator withForeignKeysPerTable(int foreignKeysPerTable) {
+		this.foreignKeysPerTable = foreignKeysPerTable;
+		return this;
+	}
+
+	/**
+	 * @param compositeForeignKeyRatio share of foreign keys referencing a two
+	 *            column alternate key instead of the primary key
+	 */
+	public SyntheticModelGenerator withCompositeForeignKeyRatio(double compositeForeignKeyRatio) {
+		this.compositeForeignKeyRatio = compositeForeignKeyRatio;
+		return this;
+	}
+
+	public SyntheticModelGenerator withChecksPerTable(int checksPerTable) {
+		this.checksPerTable = checksPerTable;
+		return this;
+	}
+
+	public SyntheticModelGenerator withIndexesPerTable(int indexesPerTable) {
+		this.indexesPerTable = indexesPerTable;
+		return this;
+	}
+
+	public SyntheticModelGenerator withViews(int views) {
+		this.views = views;
+		return this;
+	}
+
+	public SyntheticModelGenerator withColumnsPerView(int columnsPerView) {
+		this.columnsPerView = columnsPerView;
+		return this;
+	}
+
+	public SyntheticModelGenerator withSequences(int sequences) {
+		this.sequences = sequences;
+		return this;
+	}
+
+	/**
+	 * @param schemas number of schemas, <code>1</code> keeps all elements in
+	 *            the default schema
+	 */
+	public SyntheticModelGenerator withSchemas(int schemas) {
+		this.schemas = Math.max(1, schemas);
+		return this;
+	}
+
+	/**
+	 * @param displays <code>true</code> to write diagram display elements of
+	 *            all tables, views and references and a note
+	 */
+	public SyntheticModelGenerator withDisplays(boolean displays) {
+		this.displays = displays;
+		return this;
+	}
+
+	public void write(Path file) throws IOException {
+		try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			write(out);
+		}
+	}
+
+	public void write(Writer out) throws IOException {
+		new ModelWriter(out).write();
+	}
+
+	/**
+	 * @param args <code>key=value</code> settings, e.g.
+	 *            <code>tables=1000</code>, followed by the output file
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("Usage: SyntheticModelGenerator [key=value ...] file");
+			System.err.println("Keys: seed, version, tables, columnsPerTable, alternateKeysPerTable, "
+					+ "foreignKeysPerTable, compositeForeignKeyRatio, checksPerTable, indexesPerTable, views, "
+					+ "columnsPerView, sequences, schemas, displays");
+			System.exit(1);
+		}
+
+		SyntheticModelGenerator generator = new SyntheticModelGenerator();
+		for (int i = 0; i < args.length - 1; i++) {
+			int separator = args[i].indexOf('=');
+			if (separator < 0) {
+				throw new IllegalArgumentException("Expected key=value: " + args[i]);
+			}
+			generator.set(args[i].substring(0, separator), args[i].substring(separator + 1));
+		}
+
+		generator.write(Paths.get(args[args.length - 1]));
+	}
+
+	private void set(String key, String value) {
+		switch (key) {
+		case "seed":
+			withSeed(Long.parseLong(value));
+			break;
+		case "version":
+			withVersion(value);
+			break;
+		case "tables":
+			withTables(Integer.parseInt(value));
+			break;
+		case "columnsPerTable":
+			withColumnsPerTable(Integer.parseInt(value));
+			break;
+		case "alternateKeysPerTable":
+			withAlternateKeysPerTable(Integer.parseInt(value));
+			break;
+		case "foreignKeysPerTable":
+			withForeignKeysPerTable(Integer.parseInt(value));
+			break;
+		case "compositeForeignKeyRatio":
+			withCompositeForeignKeyRatio(Double.parseDouble(value));
+			break;
+		case "checksPerTable":
+			withChecksPerTable(Integer.parseInt(value));
+			break;
+		case "indexesPerTable":
+			withIndexesPerTable(Integer.parseInt(value));
+			break;
+		case "views":
+			withViews(Integer.parseInt(value));
+			break;
+		case "columnsPerView":
+			withColumnsPerView(Integer.parseInt(value));
+			break;
+		case "sequences":
+			withSequences(Integer.parseInt(value));
+			break;
+		case "schemas":
+			withSchemas(Integer.parseInt(value));
+			break;
+		case "displays":
+			withDisplays(Boolean.parseBoolean(value));
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown setting: " + key);
+		}
+	}
+
+	/**
+	 * Writes one model. All random choices are taken in document order.
+	 */
+	private final class ModelWriter {
+
+		private final Writer out;
+		private final Random random = new Random(seed);
+		private final boolean v22 = "2.2".equals(version);
+
+		// two column alternate keys fit after the primary key column
+		private final int alternateKeys = Math.max(0, Math.min(alternateKeysPerTable, (columnsPerTable - 1) / 2));
+
+		// referenced table of each reference, for the reference displays
+		private final int[] pkTables = new int[Math.max(0, tables - 1) * Math.max(0, foreignKeysPerTable)];
+		private int references;
+
+		ModelWriter(Writer out) {
+			this.out = out;
+		}
+
+		void write() throws IOException {
+			out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+			out.write("<DatabaseModel VersionId=\"" + version + "\">\n");
+			if (v22) {
+				element("ModelGid", "synthetic-" + seed);
+				element("ModelVersionGid", "synthetic-" + seed + "-1");
+			} else {
+				element("Name", "synthetic");
+				element("Description", "Synthetic model, seed " + seed);
+				out.write("<DatabaseEngine><Name>PostgreSQL</Name><Version>9.x</Version></DatabaseEngine>");
+			}
+			out.write("<Counters/><AdditionalSQLBeforeCreate></AdditionalSQLBeforeCreate><AdditionalSQLAfterCreate></AdditionalSQLAfterCreate>");
+			out.write("<AdditionalSQLBeforeDrop></AdditionalSQLBeforeDrop><AdditionalSQLAfterDrop></AdditionalSQLAfterDrop>\n");
+
+			out.write("<Tables>\n");
+			for (int t = 0; t < tables; t++) {
+				writeTable(t);
+			}
+			out.write("</Tables>\n<Views>\n");
+			for (int v = 0; v < views; v++) {
+				writeView(v);
+			}
+			out.write("</Views>\n<References>\n");
+			for (int t = 1; t < tables; t++) {
+				for (int f = 0; f < foreignKeysPerTable; f++) {
+					writeReference(t, f);
+				}
+			}
+			out.write("</References>\n<Sequences>\n");
+			for (int s = 0; s < sequences; s++) {
+				writeSequence(s);
+			}
+			out.write("</Sequences>\n");
+
+			if (displays) {
+				writeDisplays();
+			} else {
+				out.write("<Notes/><Areas/><Texts/><TableDisplays/><ViewDisplays/><ReferenceDisplays/>\n");
+			}
+
+			out.write("<Properties/>\n</DatabaseModel>\n");
+		}
+
+		private void writeTable(int t) throws IOException {
+			out.write("<Table Id=\"t" + t + "\">");
+			element("Name", "table_" + t);
+			element("Description", "Table " + t);
+
+			out.write("<Columns>");
+			for (int c = 0; c < columnsPerTable; c++) {
+				out.write("<Column Id=\"t" + t + "c" + c + "\">");
+				element("Name", "column_" + c);
+				element("Type", c == 0 ? "int" : TYPES[random.nextInt(TYPES.length)]);
+				element("Description", "");
+				element("Nullable", Boolean.toString(c > 2 * alternateKeys && random.nextBoolean()));
+				if (v22) {
+					element("PK", Boolean.toString(c == 0));
+				}
+				element("DefaultValue", c > 0 && c % 4 == 0 ? "0" : "");
+				element("CheckExpression", c > 0 && c % 5 == 0 ? "column_" + c + " >= 0" : "");
+				out.write("<Properties/></Column>");
+			}
+			out.write("</Columns>\n");
+
+			if (!v22) {
+				out.write("<PrimaryKey>");
+				element("Name", "table_" + t + "_pk");
+				out.write("<Columns><Column>t" + t + "c0</Column></Columns></PrimaryKey>");
+			}
+
+			out.write("<AlternateKeys>");
+			for (int k = 0; k < alternateKeys; k++) {
+				out.write("<AlternateKey Id=\"t" + t + "ak" + k + "\">");
+				element("Name", "table_" + t + "_ak_" + k);
+				element("Description", "");
+				writeKeyColumns("t" + t + "c" + (1 + 2 * k), "t" + t + "c" + (2 + 2 * k));
+				out.write("<Properties/></AlternateKey>");
+			}
+			out.write("</AlternateKeys>");
+
+			out.write("<Indexes>");
+			for (int i = 0; i < indexesPerTable; i++) {
+				writeIndex(t, i);
+			}
+			out.write("</Indexes>");
+
+			out.write("<TableChecks>");
+			for (int k = 0; k < checksPerTable; k++) {
+				out.write("<TableCheck Id=\"t" + t + "chk" + k + "\">");
+				element("Name", "table_" + t + "_chk_" + k);
+				element("Description", "");
+				element("CheckExpression", "column_" + (k % columnsPerTable) + " is not null");
+				out.write("<Properties/></TableCheck>");
+			}
+			out.write("</TableChecks>");
+
+			out.write("<AdditionalSQLBefore></AdditionalSQLBefore><AdditionalSQLAfter></AdditionalSQLAfter>");
+			out.write("<Properties>");
+			writeSchemaProperty(t);
+			if (v22) {
+				writeProperty("Primary key name", "table_" + t + "_pk");
+			}
+			out.write("</Properties></Table>\n");
+		}
+
+		private void writeKeyColumns(String... columnIds) throws IOException {
+			if (v22) {
+				// one Columns element for each column
+				for (String columnId : columnIds) {
+					out.write("<Columns><Column>" + columnId + "</Column></Columns>");
+				}
+			} else {
+				out.write("<Columns>");
+				for (String columnId : columnIds) {
+					out.write("<Column>" + columnId + "</Column>");
+				}
+				out.write("</Columns>");
+			}
+		}
+
+		private void writeIndex(int t, int i) throws IOException {
+			out.write("<Index Id=\"t" + t + "i" + i + "\">");
+			element("Name", "table_" + t + "_idx_" + i);
+			element("Description", "");
+
+			String columnId = "t" + t + "c" + (i % columnsPerTable);
+			String ascending = Boolean.toString(random.nextInt(4) != 0);
+			if (v22) {
+				out.write("<Columns><Column>" + columnId + "</Column><Ascending>" + ascending + "</Ascending></Columns>");
+			} else {
+				out.write("<Columns><Column><Column>" + columnId + "</Column><Ascending>" + ascending
+						+ "</Ascending></Column></Columns>");
+			}
+			out.write("<Properties/></Index>");
+		}
+
+		private void writeView(int v) throws IOException {
+			int table = tables > 0 ? random.nextInt(tables) : 0;
+
+			out.write("<View Id=\"v" + v + "\">");
+			element("Name", "view_" + v);
+			element("Description", "View " + v);
+			element("SQLQuery", "select * from table_" + table);
+
+			out.write("<ViewColumns>");
+			for (int c = 0; c < columnsPerView; c++) {
+				out.write("<ViewColumn Id=\"v" + v + "c" + c + "\">");
+				element("Name", "column_" + c);
+				element("Type", TYPES[random.nextInt(TYPES.length)]);
+				element("Description", "");
+				out.write("<Properties/></ViewColumn>");
+			}
+			out.write("</ViewColumns>");
+
+			out.write("<AdditionalSQLBefore></AdditionalSQLBefore><AdditionalSQLAfter></AdditionalSQLAfter>");
+			if (!v22) {
+				out.write("<Dependencies/>");
+			}
+			out.write("<Properties>");
+			writeSchemaProperty(v);
+			out.write("</Properties></View>\n");
+		}
+
+		private void writeReference(int t, int f) throws IOException {
+			int pkTable = random.nextInt(t);
+			boolean composite = alternateKeys > 0 && random.nextDouble() < compositeForeignKeyRatio;
+
+			out.write("<Reference Id=\"r" + references + "\">");
+			element("Name", "table_" + t + "_fk_" + f);
+			element("Description", "");
+			element("PKTable", "t" + pkTable);
+			element("FKTable", "t" + t);
+			out.write("<PKRole></PKRole><FKRole></FKRole>");
+
+			out.write("<ReferenceColumns>");
+			if (composite) {
+				writeReferenceColumn("t" + pkTable + "c1", "t" + t + "c" + foreignKeyColumn(f, 0));
+				writeReferenceColumn("t" + pkTable + "c2", "t" + t + "c" + foreignKeyColumn(f, 1));
+			} else {
+				writeReferenceColumn("t" + pkTable + "c0", "t" + t + "c" + foreignKeyColumn(f, 0));
+			}
+			out.write("</ReferenceColumns>");
+
+			out.write("<Cardinality>0..*</Cardinality><Mandatory>false</Mandatory>");
+			out.write("<OnUpdateAction>None</OnUpdateAction><OnDeleteAction>None</OnDeleteAction>");
+			out.write("<Properties/></Reference>\n");
+
+			pkTables[references++] = pkTable;
+		}
+
+		// columns of foreign keys are taken from the end of the table
+		private int foreignKeyColumn(int f, int i) {
+			if (columnsPerTable == 1) {
+				return 0;
+			}
+			return columnsPerTable - 1 - (2 * f + i) % (columnsPerTable - 1);
+		}
+
+		private void writeReferenceColumn(String pkColumnId, String fkColumnId) throws IOException {
+			out.write("<ReferenceColumn><PKColumn>" + pkColumnId + "</PKColumn><FKColumn>" + fkColumnId
+					+ "</FKColumn></ReferenceColumn>");
+		}
+
+		private void writeSequence(int s) throws IOException {
+			out.write("<Sequence Id=\"s" + s + "\">");
+			element("Name", "sequence_" + s);
+			element("Description", "");
+			element("StartWith", "1");
+			element("IncrementBy", Integer.toString(1 + random.nextInt(50)));
+			element("MinValue", "1");
+			if (v22) {
+				element("HasMinValue", "true");
+			}
+			element("MaxValue", "2147483647");
+			if (v22) {
+				element("HasMaxValue", "true");
+			}
+			element("Cycle", Boolean.toString(random.nextInt(4) == 0));
+			element("Cache", "20");
+			element(v22 ? "HasCache" : "UseCache", Boolean.toString(random.nextBoolean()));
+			out.write("<AdditionalSQLBefore></AdditionalSQLBefore><AdditionalSQLAfter></AdditionalSQLAfter>");
+			out.write("<Properties>");
+			writeSchemaProperty(s);
+			out.write("</Properties></Sequence>\n");
+		}
+
+		private void writeDisplays() throws IOException {
+			out.write("<Notes><Note Id=\"n0\">");
+			element("Name", "note");
+			element("Content", "Synthetic model of " + tables + " tables");
+			out.write("<DisplayInfo>");
+			writeBounds(0, -200, 400, 100);
+			out.write("</DisplayInfo></Note></Notes>\n");
+
+			out.write("<Areas><Area Id=\"a0\">");
+			element("Name", "area");
+			out.write("<DisplayInfo>");
+			writeBounds(-100, -300, Math.min(tables, 50) * 250, 600);
+			element("DashArray", "");
+			element("NameX", "-90");
+			element("NameY", "-290");
+			element("NameColor", "#000000");
+			element("ZIndex", "0");
+			out.write("</DisplayInfo></Area></Areas>\n<Texts/>\n");
+
+			out.write("<TableDisplays>\n");
+			for (int t = 0; t < tables; t++) {
+				out.write("<TableDisplay Id=\"td" + t + "\">");
+				writeBounds((t % 50) * 250, (t / 50) * 300, 200, 40 + 20 * columnsPerTable);
+				element("Table", "t" + t);
+				element("FixedSize", "false");
+				out.write("</TableDisplay>\n");
+			}
+			out.write("</TableDisplays>\n<ViewDisplays>\n");
+			for (int v = 0; v < views; v++) {
+				out.write("<ViewDisplay Id=\"vd" + v + "\">");
+				writeBounds((v % 50) * 250, -400 - (v / 50) * 300, 200, 40 + 20 * columnsPerView);
+				element("FixedSize", "false");
+				element("View", "v" + v);
+				out.write("</ViewDisplay>\n");
+			}
+			out.write("</ViewDisplays>\n<ReferenceDisplays>\n");
+
+			// references are numbered in the order they were written
+			int reference = 0;
+			for (int t = 1; t < tables; t++) {
+				for (int f = 0; f < foreignKeysPerTable; f++) {
+					writeReferenceDisplay(reference, pkTables[reference], t);
+					reference++;
+				}
+			}
+			out.write("</ReferenceDisplays>\n");
+		}
+
+		private void writeReferenceDisplay(int reference, int pkTable, int fkTable) throws IOException {
+			out.write("<ReferenceDisplay Id=\"rd" + reference + "\">");
+			element("Color", "#000000");
+			if (v22) {
+				element("ControlPointsType", "Vertical_2CP");
+				writePoints();
+			} else {
+				element("Type", "Vertical_2CP");
+				out.write("<ControlPoints>");
+				writePoints();
+				out.write("</ControlPoints>");
+			}
+			element("PkTableDisplay", "td" + pkTable);
+			element("FkTableDisplay", "td" + fkTable);
+			element("Reference", "r" + reference);
+			out.write("</ReferenceDisplay>\n");
+		}
+
+		private void writePoints() throws IOException {
+			for (int i = 0; i < 2; i++) {
+				out.write("<ControlPoint><X>" + random.nextInt(10000) + "</X><Y>" + random.nextInt(10000)
+						+ "</Y></ControlPoint>");
+			}
+		}
+
+		private void writeBounds(int x, int y, int width, int height) throws IOException {
+			element("X", Integer.toString(x));
+			element("Y", Integer.toString(y));
+			element("Width", Integer.toString(width));
+			element("Height", Integer.toString(height));
+			element("LineColor", "#000000");
+			element("FillColor", "#ffffff");
+		}
+
+		private void writeSchemaProperty(int element) throws IOException {
+			if (schemas > 1) {
+				writeProperty(AbstractVertabeloDatabase.SCHEMA_ADDITIONAL_PROPERTY_NAME, "schema_" + (element % schemas));
+			}
+		}
+
+		private void writeProperty(String name, String value) throws IOException {
+			out.write("<Property>");
+			element("Name", name);
+			element("Value", value);
+			out.write("</Property>");
+		}
+
+		private void element(String name, String value) throws IOException {
+			out.write('<');
+			out.write(name);
+			out.write('>');
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				switch (c) {
+				case '<':
+					out.write("&lt;");
+					break;
+				case '>':
+					out.write("&gt;");
+					break;
+				case '&':
+					out.write("&amp;");
+					break;
+				default:
+					out.write(c);
+				}
+			}
+			out.write("</");
+			out.write(name);
+			out.write('>');
+		}
+	}
+}
@@ -0,0 +1,202 @@
+package com.vertabelo.jooq;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The API client with a cache against a local stub of the Vertabelo API.
+ */
+public class VertabeloAPIClientTest {
+
+	private static final String API_URL_PROPERTY = VertabeloAPIClient.class.getName() + ".apiUrl";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private HttpServer server;
+	private final StubModel model = new StubModel();
+	private VertabeloAPICache cache;
+
+	@Before
+	public void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/api/xml/", model);
+		server.start();
+
+		System.setProperty(API_URL_PROPERTY, "http://localhost:" + server.getAddress().getPort() + "/api/xml/");
+		cache = new VertabeloAPICache(folder.getRoot().getPath());
+	}
+
+	@After
+	public void stopServer() {
+		System.clearProperty(API_URL_PROPERTY);
+		server.stop(0);
+	}
+
+	@Test
+	public void latestModelIsRevalidated() {
+		model.update("<DatabaseModel VersionId=\"2.3\"/>", "\"v1\"");
+
+		assertArrayEquals(model.body, client().getXMLBytes("m1", null));
+		assertNull(model.ifNoneMatch.get(0));
+
+		assertArrayEquals(model.body, client().getXMLBytes("m1", null));
+		assertEquals("\"v1\"", model.ifNoneMatch.get(1));
+		assertEquals(1, model.notModified);
+	}
+
+	@Test
+	public void changedModelReplacesCachedModel() {
+		model.update("<DatabaseModel VersionId=\"2.2\"/>", "\"v1\"");
+		client().getXMLBytes("m1", null);
+
+		model.update("<DatabaseModel VersionId=\"2.3\"/>", "\"v2\"");
+		assertArrayEquals(model.body, client().getXMLBytes("m1", null));
+		assertEquals(0, model.notModified);
+
+		VertabeloAPICache.Entry entry = cache.entry("m1", null);
+		assertEquals("\"v2\"", entry.readValidators().getProperty(VertabeloAPICache.ETAG));
+		assertArrayEquals(model.body, client().getXMLBytes("m1", null));
+		assertEquals(1, model.notModified);
+	}
+
+	@Test
+	public void taggedModelIsNotFetchedAgain() {
+		model.update("<DatabaseModel VersionId=\"2.3\"/>", "\"v1\"");
+
+		assertArrayEquals(model.body, client().getXMLBytes("m1", "release-1"));
+		assertArrayEquals(model.body, client().getXMLBytes("m1", "release-1"));
+		assertEquals(1, model.ifNoneMatch.size());
+		assertEquals("/api/xml/m1/release-1", model.paths.get(0));
+	}
+
+	@Test
+	public void modelIdAndTagNameDoNotCollide() {
+		model.update("<DatabaseModel VersionId=\"2.3\"/>", "\"v1\"");
+		client().getXMLBytes("a_tag_b", null);
+
+		assertFalse(cache.entry("a", "b_latest").exists());
+		assertTrue(cache.entry("a_tag_b", null).exists());
+	}
+
+	@Test
+	public void unreadableTaggedModelIsFetchedAgain() throws IOException {
+		model.update("<DatabaseModel VersionId=\"2.3\"/>", "\"v1\"");
+		client().getXMLBytes("m1", "release-1");
+
+		File[] files = folder.getRoot().listFiles();
+		assertEquals(1, files.length);
+		Files.write(files[0].toPath(), new byte[] { 1, 2 });
+
+		assertArrayEquals(model.body, client().getXMLBytes("m1", "release-1"));
+		assertEquals(2, model.paths.size());
+		assertArrayEquals(model.body, client().getXMLBytes("m1", "release-1"));
+		assertEquals(2, model.paths.size());
+	}
+
+	@Test
+	public void entryIsOneFile() {
+		model.update("<DatabaseModel VersionId=\"2.3\"/>", "\"v1\"");
+		client().getXMLBytes("m1", null);
+
+		File[] files = folder.getRoot().listFiles();
+		assertEquals(1, files.length);
+
+		Properties validators = cache.entry("m1", null).readValidators();
+		assertEquals("\"v1\"", validators.getProperty(VertabeloAPICache.ETAG));
+		assertEquals(StubModel.LAST_MODIFIED, validators.getProperty(VertabeloAPICache.LAST_MODIFIED));
+	}
+
+	@Test
+	public void modelIsDecodedInDeclaredEncoding() {
+		String xml = "<?xml version=\"1.0\" encoding=\"ISO-8859-2\"?><DatabaseModel VersionId=\"2.3\">Michał</DatabaseModel>";
+		model.update(xml.getBytes(Charset.forName("ISO-8859-2")), "\"v1\"");
+
+		VertabeloAPIClient client = new VertabeloAPIClient("token");
+		assertEquals(xml, client.getXML("m1", null));
+	}
+
+	@Test
+	public void modelIsDownloadedWithoutCache() throws IOException {
+		model.update("<DatabaseModel VersionId=\"2.3\"/>", "\"v1\"");
+
+		File file = folder.newFile("model.xml");
+		new VertabeloAPIClient("token").downloadXML("m1", null, file.toPath());
+		assertArrayEquals(model.body, Files.readAllBytes(file.toPath()));
+	}
+
+	private VertabeloAPIClient client() {
+		VertabeloAPIClient client = new VertabeloAPIClient("token");
+		client.setCache(cache);
+		return client;
+	}
+
+	/**
+	 * Serves one model, answering requests with its ETag with a 304.
+	 */
+	private static final class StubModel implements HttpHandler {
+
+		static final String LAST_MODIFIED = "Sat, 17 Oct 2026 10:00:00 GMT";
+
+		volatile byte[] body;
+		volatile String etag;
+
+		final List<String> paths = new ArrayList<String>();
+		final List<String> ifNoneMatch = new ArrayList<String>();
+		int notModified;
+
+		void update(String xml, String etag) {
+			update(xml.getBytes(StandardCharsets.UTF_8), etag);
+		}
+
+		void update(byte[] body, String etag) {
+			this.body = body;
+			this.etag = etag;
+		}
+
+		@Override
+		public synchronized void handle(HttpExchange exchange) throws IOException {
+			String requestETag = exchange.getRequestHeaders().getFirst("If-None-Match");
+			paths.add(exchange.getRequestURI().getPath());
+			ifNoneMatch.add(requestETag);
+
+			exchange.getResponseHeaders().set("ETag", etag);
+			exchange.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+			if (etag.equals(requestETag)) {
+				notModified++;
+				exchange.sendResponseHeaders(304, -1);
+				exchange.close();
+				return;
+			}
+
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		}
+	}
+}
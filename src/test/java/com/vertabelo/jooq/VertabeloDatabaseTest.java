@@ -0,0 +1,42 @@
+package com.vertabelo.jooq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Models of any version read by the database detecting the version.
+ */
+public class VertabeloDatabaseTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void metricsAreReportedOnClose() throws Exception {
+		// a copy of its own, models are cached by file
+		File model = folder.newFile("shop-2.3.xml");
+		Files.copy(AbstractVertabeloDatabaseTest.resource("shop-2.3.xml").toPath(), model.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+
+		File metrics = new File(folder.getRoot(), "metrics.json");
+		AbstractVertabeloDatabase database = AbstractVertabeloDatabaseTest.database(new VertabeloDatabase(),
+				"xml-file", model.getPath(), "xml-binder", "jaxb", "metrics-file", metrics.getPath());
+
+		assertEquals(4, database.getTables(database.getSchema("crm")).size());
+		database.close();
+
+		// the delegate parsing the model has nothing to report, it does not overwrite the report
+		String report = new String(Files.readAllBytes(metrics.toPath()), StandardCharsets.UTF_8);
+		assertTrue(report, report.contains("\"name\": \"unmarshal\""));
+		assertTrue(report, report.contains("\"name\": \"tables\""));
+	}
+}
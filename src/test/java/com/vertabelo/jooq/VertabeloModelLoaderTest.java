@@ -0,0 +1,78 @@
+package com.vertabelo.jooq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Properties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Reading model files as bytes and through subclasses that still return
+ * Strings.
+ */
+public class VertabeloModelLoaderTest {
+
+	private static final String XML = "<?xml version=\"1.0\" encoding=\"ISO-8859-2\"?>"
+			+ "<DatabaseModel VersionId=\"2.3\">Michał</DatabaseModel>";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void fileIsDecodedInDeclaredEncoding() throws IOException {
+		VertabeloModelLoader loader = new VertabeloModelLoader(properties(modelFile()));
+		loader.readXML();
+
+		assertEquals("2.3", loader.getVertabeloXMLVersion());
+		assertEquals(XML, loader.getVertabeloXML());
+	}
+
+	@Test
+	public void overriddenStringMethodIsUsed() throws IOException {
+		VertabeloModelLoader loader = new VertabeloModelLoader(properties(modelFile())) {
+			@Override
+			@Deprecated
+			protected String readFileXML(String fileName) {
+				return "<DatabaseModel VersionId=\"2.2\"/>";
+			}
+		};
+		loader.readXML();
+
+		assertEquals("2.2", loader.getVertabeloXMLVersion());
+	}
+
+	@Test
+	public void failedPhaseIsMeasured() {
+		LoadMetrics metrics = new LoadMetrics();
+		VertabeloModelLoader loader = new VertabeloModelLoader(properties(new File(folder.getRoot(), "missing.xml")));
+		loader.setMetrics(metrics);
+
+		try {
+			loader.readXML();
+			fail();
+		} catch (RuntimeException expected) {
+		}
+
+		// the file is parsed as it is read, opening it fails detecting the version
+		assertEquals(Long.valueOf(1), metrics.getCalls().get(LoadMetrics.VERSION));
+	}
+
+	private File modelFile() throws IOException {
+		File file = folder.newFile("model.xml");
+		Files.write(file.toPath(), XML.getBytes(Charset.forName("ISO-8859-2")));
+		return file;
+	}
+
+	private static Properties properties(File file) {
+		Properties properties = new Properties();
+		properties.setProperty("xml-file", file.getPath());
+		return properties;
+	}
+}
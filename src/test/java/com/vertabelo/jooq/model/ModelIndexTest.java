@@ -0,0 +1,97 @@
+package com.vertabelo.jooq.model;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Matching the columns of references to the unique keys of a table.
+ */
+public class ModelIndexTest {
+
+	private final ModelColumn region = column("c1", "region");
+	private final ModelColumn code = column("c2", "code");
+	private final ModelColumn email = column("c3", "email");
+	private final ModelColumn customerRegion = column("c4", "customer_region");
+	private final ModelColumn customerCode = column("c5", "customer_code");
+	private final ModelColumn customerEmail = column("c6", "customer_email");
+
+	@Test
+	public void compositeKeysMatchInDeclaredOrder() {
+		ModelKey primaryKey = key("pk", region, code);
+		ModelKey alternateKey = key("ak", code, email);
+		ModelTable customer = table("customer", primaryKey, alternateKey);
+
+		ModelIndex index = index(customer);
+		assertSame(primaryKey, index.getUniqueKey(customer, reference(customer, region, code).getPKColumns()));
+		assertSame(alternateKey, index.getUniqueKey(customer, reference(customer, code, email).getPKColumns()));
+	}
+
+	@Test
+	public void keyColumnsInOtherOrderDoNotMatch() {
+		ModelTable customer = table("customer", null, key("ak", region, code));
+
+		ModelIndex index = index(customer);
+		assertNull(index.getUniqueKey(customer, reference(customer, code, region).getPKColumns()));
+	}
+
+	@Test
+	public void primaryKeyWinsOverAlternateKeyOnSameColumns() {
+		ModelKey primaryKey = key("pk", region, code);
+		ModelTable customer = table("customer", primaryKey, key("ak", region, code));
+
+		ModelIndex index = index(customer);
+		assertSame(primaryKey, index.getUniqueKey(customer, reference(customer, region, code).getPKColumns()));
+	}
+
+	@Test
+	public void referenceWithoutKeyDoesNotMatch() {
+		ModelTable customer = table("customer", key("pk", region, code), key("ak", email));
+
+		ModelIndex index = index(customer);
+		assertNull(index.getUniqueKey(customer, reference(customer, region).getPKColumns()));
+		assertNull(index.getUniqueKey(customer, reference(customer, region, code, email).getPKColumns()));
+	}
+
+	private static ModelColumn column(String id, String name) {
+		return new ModelColumn(id, name, "int", "", false, "", "", Collections.<ModelProperty> emptyList());
+	}
+
+	private static ModelKey key(String name, ModelColumn... columns) {
+		return new ModelKey(name, name, Arrays.asList(columns), Collections.<ModelProperty> emptyList());
+	}
+
+	private ModelTable table(String name, ModelKey primaryKey, ModelKey... alternateKeys) {
+		return new ModelTable(name, name, "", Arrays.asList(region, code, email), primaryKey,
+				Arrays.asList(alternateKeys), Collections.<ModelTableIndex> emptyList(),
+				Collections.<ModelCheck> emptyList(), Collections.<ModelProperty> emptyList());
+	}
+
+	/**
+	 * A reference from an orders table to the given columns.
+	 */
+	private ModelReference reference(ModelTable pkTable, ModelColumn... pkColumns) {
+		List<ModelColumn> fkColumns = Arrays.asList(customerRegion, customerCode, customerEmail);
+		List<ModelReferenceColumn> referenceColumns = new ArrayList<ModelReferenceColumn>();
+		for (int i = 0; i < pkColumns.length; i++) {
+			referenceColumns.add(new ModelReferenceColumn(pkColumns[i], fkColumns.get(i)));
+		}
+
+		ModelTable orders = new ModelTable("orders", "orders", "", fkColumns, null,
+				Collections.<ModelKey> emptyList(), Collections.<ModelTableIndex> emptyList(),
+				Collections.<ModelCheck> emptyList(), Collections.<ModelProperty> emptyList());
+		return new ModelReference("r", "orders_customer", pkTable, orders, referenceColumns,
+				Collections.<ModelProperty> emptyList());
+	}
+
+	private static ModelIndex index(ModelTable table) {
+		return new ModelDatabase("2.3", Collections.singletonList(table), Collections.<ModelView> emptyList(),
+				Collections.<ModelReference> emptyList(), Collections.<ModelSequence> emptyList()).getIndex();
+	}
+}